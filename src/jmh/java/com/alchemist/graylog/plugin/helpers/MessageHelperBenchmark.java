@@ -0,0 +1,62 @@
+package com.alchemist.graylog.plugin.helpers;
+
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class MessageHelperBenchmark.
+ * <p>
+ * Level extraction of numeric, string, garbage and missing level field.
+ *
+ * @author Alchemist
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageHelperBenchmark {
+
+    @Param({"numeric", "string", "garbage", "missing"})
+    public String level;
+
+    private Message message;
+
+    /**
+     * Build message.
+     */
+    @Setup
+    public void setup() {
+        message = new Message("Connection refused", "host-1", Tools.nowUTC());
+        switch (level) {
+            case "numeric":
+                message.addField("level", 3);
+                break;
+            case "string":
+                message.addField("level", "3");
+                break;
+            case "garbage":
+                message.addField("level", "error");
+                break;
+        }
+    }
+
+    @Benchmark
+    public int getLevel() {
+        return MessageHelper.getLevel(message);
+    }
+}
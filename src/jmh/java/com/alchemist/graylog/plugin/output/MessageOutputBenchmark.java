@@ -0,0 +1,107 @@
+package com.alchemist.graylog.plugin.output;
+
+import com.alchemist.graylog.plugin.audit.AuditRing;
+import com.alchemist.graylog.plugin.grace.MemoryGraceStore;
+import com.alchemist.graylog.plugin.transport.EndpointRegistry;
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.streams.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Class MessageOutputBenchmark.
+ * <p>
+ * Output write of message skipped by level, by ignore rule and by grace window.
+ * Webhook points to closed local port with retry disabled, grace lets only the first message through.
+ *
+ * @author Alchemist
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageOutputBenchmark {
+
+    @Param({"level", "ignore", "grace"})
+    public String path;
+
+    private GraylogOutputCarrierMessageOutput output;
+    private Message message;
+
+    /**
+     * Build output and message.
+     *
+     * @throws Exception Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn("5e1f0e3a2ab79c0012345678");
+        when(stream.getTitle()).thenReturn("Benchmark");
+
+        final Map<String, Object> settings = new HashMap<>();
+        settings.put("webhook_type", "SlackSender");
+        settings.put("webhook_url", "http://127.0.0.1:9/hooks/benchmark");
+        settings.put("level", 4);
+        settings.put("grace", 60);
+        settings.put("text_limit", 1000);
+        settings.put("graylog_url", "http://graylog.local/");
+        settings.put("ignored_fields", "{\"facility\": [\"healthcheck\", \"eq:heartbeat\", \"re:^probe-\\\\d+$\"]}");
+        settings.put("retry_deadline", 0);
+        output = new GraylogOutputCarrierMessageOutput(stream, new Configuration(settings), new MetricRegistry(),
+                new AuditRing(), new EndpointRegistry(), new MemoryGraceStore());
+
+        message = new Message("Connection refused while calling upstream service", "host-1", Tools.nowUTC());
+        message.addField("app", "api");
+        message.addField("env", "production");
+        switch (path) {
+            case "level":
+                message.addField("level", 6);
+                message.addField("facility", "com.example.Service");
+                break;
+            case "ignore":
+                message.addField("level", 3);
+                message.addField("facility", "com.example.HealthCheck");
+                break;
+            case "grace":
+                message.addField("level", 3);
+                message.addField("facility", "com.example.Service");
+                break;
+        }
+    }
+
+    /**
+     * Stop output.
+     */
+    @TearDown
+    public void tearDown() {
+        output.stop();
+    }
+
+    @Benchmark
+    public void write() throws Exception {
+        output.write(message);
+    }
+}
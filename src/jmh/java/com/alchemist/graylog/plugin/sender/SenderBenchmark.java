@@ -0,0 +1,114 @@
+package com.alchemist.graylog.plugin.sender;
+
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.UrlConnectionTransport;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.streams.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Class SenderBenchmark.
+ * <p>
+ * Payload rendering of each sender and text preparation of very large message, nothing is sent.
+ *
+ * @author Alchemist
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SenderBenchmark {
+    private static final String WEBHOOK_URL = "http://127.0.0.1:9/hooks/benchmark";
+    private static final String GRAYLOG_URL = "http://graylog.local/";
+    private static final int TEXT_LIMIT = 3000;
+    private static final int STACK_FRAMES = 10;
+
+    @Param({"200", "1048576"})
+    public int size;
+
+    private Message message;
+    private Notification notification;
+    private AbstractSender slack;
+    private AbstractSender telegram;
+    private AbstractSender mattermost;
+    private AbstractSender summary;
+
+    /**
+     * Build senders and message.
+     *
+     * @throws Exception Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn("5e1f0e3a2ab79c0012345678");
+
+        final Endpoint transport = new Endpoint(new UrlConnectionTransport(1000, 1000));
+        slack = new SlackSender(stream, WEBHOOK_URL, "#alerts", GRAYLOG_URL, TEXT_LIMIT, 0,
+                Collections.singletonList("facility"), transport);
+        telegram = new TelegramSender(stream, WEBHOOK_URL, "-100123456", GRAYLOG_URL, TEXT_LIMIT, 0,
+                Collections.singletonList("facility"), transport);
+        mattermost = new MattermostSender(stream, WEBHOOK_URL, "alerts", GRAYLOG_URL, TEXT_LIMIT, 0,
+                Collections.singletonList("facility"), transport);
+        summary = new SlackSender(stream, WEBHOOK_URL, "#alerts", GRAYLOG_URL, TEXT_LIMIT, STACK_FRAMES,
+                Collections.singletonList("facility"), transport);
+
+        final StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append("java.lang.IllegalStateException: <state> & \"quoted\" value\n")
+                    .append("\tat com.example.Service.run(Service.java:42)\n");
+        }
+        text.setLength(size);
+
+        message = new Message(text.toString(), "host-1", Tools.nowUTC());
+        message.addField("level", 3);
+        message.addField("app", "api");
+        message.addField("env", "production");
+        message.addField("facility", "com.example.Service");
+        notification = new Notification(message, 3);
+    }
+
+    @Benchmark
+    public String getText() {
+        return slack.getText(message);
+    }
+
+    @Benchmark
+    public String getSummary() {
+        return summary.getText(message);
+    }
+
+    @Benchmark
+    public byte[] prepareSlack() throws Exception {
+        return slack.render(notification);
+    }
+
+    @Benchmark
+    public byte[] prepareTelegram() throws Exception {
+        return telegram.render(notification);
+    }
+
+    @Benchmark
+    public byte[] prepareMattermost() throws Exception {
+        return mattermost.render(notification);
+    }
+}
@@ -1,12 +1,24 @@
 package com.alchemist.graylog.plugin;
 
+import com.alchemist.graylog.plugin.dispatch.OverflowPolicy;
+import com.alchemist.graylog.plugin.dispatch.Router;
+import com.alchemist.graylog.plugin.filter.IgnoreMatcher;
+import com.alchemist.graylog.plugin.grace.ClusterGrace;
+import com.alchemist.graylog.plugin.grace.FileGrace;
+import com.alchemist.graylog.plugin.grace.KeyedGrace;
+import com.alchemist.graylog.plugin.grace.MemoryGrace;
 import com.alchemist.graylog.plugin.helpers.ParseHelper;
+import com.alchemist.graylog.plugin.sender.BulkSender;
 import com.alchemist.graylog.plugin.sender.MattermostSender;
 import com.alchemist.graylog.plugin.sender.SlackSender;
 import com.alchemist.graylog.plugin.sender.TelegramSender;
+import com.alchemist.graylog.plugin.template.PayloadTemplate;
+import com.alchemist.graylog.plugin.transport.PooledTransport;
+import com.alchemist.graylog.plugin.transport.UrlConnectionTransport;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationException;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
+import org.graylog2.plugin.configuration.fields.BooleanField;
 import org.graylog2.plugin.configuration.fields.ConfigurationField;
 import org.graylog2.plugin.configuration.fields.DropdownField;
 import org.graylog2.plugin.configuration.fields.NumberField;
@@ -14,10 +26,12 @@ import org.graylog2.plugin.configuration.fields.TextField;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Class GraylogOutputCarrierConfig.
@@ -26,21 +40,92 @@ import java.util.Map;
  */
 public final class GraylogOutputCarrierConfig {
 
+    public static final String TARGET_TYPE = "type";
+    public static final String TARGET_URL = "url";
+    public static final String TARGET_CHANNEL = "channel";
+    public static final String TARGET_NAME = "name";
+    public static final String TARGET_MAIN = "main";
+
     private static final String CONF_WEBHOOK_TYPE = "webhook_type";
     private static final String CONF_WEBHOOK_URL = "webhook_url";
     private static final String CONF_CHANNEL = "channel";
+    private static final String CONF_TARGETS = "targets";
+    private static final String CONF_TARGET_TIMEOUT = "target_timeout";
+    private static final String CONF_ROUTES = "routes";
     private static final String CONF_LEVEL = "level";
     private static final String CONF_GRACE = "grace";
+    private static final String CONF_GRACE_TYPE = "grace_type";
+    private static final String CONF_GRACE_KEY_FIELDS = "grace_key_fields";
+    private static final String CONF_GRACE_MAX_KEYS = "grace_max_keys";
+    private static final String CONF_DIGEST = "digest";
+    private static final String CONF_DIGEST_KEY_FIELD = "digest_key_field";
+    private static final String CONF_DEDUP_FIELDS = "dedup_fields";
+    private static final String CONF_DEDUP_TTL = "dedup_ttl";
+    private static final String CONF_DEDUP_MAX_ENTRIES = "dedup_max_entries";
     private static final String CONF_TEXT_LIMIT = "text_limit";
+    private static final String CONF_STACK_FRAMES = "stack_frames";
     private static final String CONF_ADDITIONAL_FIELDS = "additional_fields";
     private static final String CONF_IGNORED_FIELDS = "ignored_fields";
+    private static final String CONF_PAYLOAD_TEMPLATE = "payload_template";
+    private static final String CONF_BULK_FORMAT = "bulk_format";
+    private static final String CONF_BULK_FIELDS = "bulk_fields";
+    private static final String CONF_BULK_MAX_SIZE = "bulk_max_size";
+    private static final String CONF_BULK_GZIP = "bulk_gzip";
     private static final String CONF_GRAYLOG_URL = "graylog_url";
+    private static final String CONF_QUEUE_CAPACITY = "queue_capacity";
+    private static final String CONF_QUEUE_WORKERS = "queue_workers";
+    private static final String CONF_QUEUE_OVERFLOW = "queue_overflow";
+    private static final String CONF_SHED_HIGH_WATERMARK = "shed_high_watermark";
+    private static final String CONF_SHED_LOW_WATERMARK = "shed_low_watermark";
+    private static final String CONF_SHED_LEVEL = "shed_level";
+    private static final String CONF_BATCH_WINDOW = "batch_window";
+    private static final String CONF_BATCH_SIZE = "batch_size";
+    private static final String CONF_RETRY_DEADLINE = "retry_deadline";
+    private static final String CONF_RETRY_MAX_IN_FLIGHT = "retry_max_in_flight";
+    private static final String CONF_JOURNAL = "journal";
+    private static final String CONF_JOURNAL_PATH = "journal_path";
+    private static final String CONF_JOURNAL_MAX_SIZE = "journal_max_size";
+    private static final String CONF_JOURNAL_MAX_AGE = "journal_max_age";
+    private static final String CONF_TRANSPORT_TYPE = "transport_type";
+    private static final String CONF_POOL_SIZE = "pool_size";
+    private static final String CONF_CONNECT_TIMEOUT = "connect_timeout";
+    private static final String CONF_READ_TIMEOUT = "read_timeout";
+    private static final String CONF_REQUEST_TIMEOUT = "request_timeout";
+    private static final String CONF_BREAKER_ERROR_RATE = "breaker_error_rate";
+    private static final String CONF_BREAKER_TIMEOUTS = "breaker_timeouts";
+    private static final String CONF_BREAKER_OPEN_TIME = "breaker_open_time";
+    private static final String CONF_BREAKER_PROBES = "breaker_probes";
+    private static final String CONF_BREAKER_FALLBACK = "breaker_fallback";
 
 
     private static final Map<String, String> WEBHOOK_TYPE = new HashMap<String, String>() {{
         put(SlackSender.TAG, "Slack messenger");
         put(TelegramSender.TAG, "Telegram messenger");
         put(MattermostSender.TAG, "Mattermost messenger");
+        put(BulkSender.TAG, "Bulk JSON to HTTP collector");
+    }};
+
+    private static final Map<String, String> GRACE_TYPE = new HashMap<String, String>() {{
+        put(MemoryGrace.TAG, "In memory");
+        put(FileGrace.TAG, "File in /tmp/graylog-grace");
+        put(KeyedGrace.TAG, "In memory per key fields");
+        put(ClusterGrace.TAG, "Shared by cluster in MongoDB");
+    }};
+
+    private static final Map<String, String> BULK_FORMAT = new HashMap<String, String>() {{
+        put(BulkSender.FORMAT_NDJSON, "Newline delimited JSON");
+        put(BulkSender.FORMAT_JSON, "JSON array");
+    }};
+
+    private static final Map<String, String> QUEUE_OVERFLOW = new HashMap<String, String>() {{
+        put(OverflowPolicy.DROP_NEWEST.name(), "Drop newest message");
+        put(OverflowPolicy.DROP_OLDEST.name(), "Drop oldest message");
+        put(OverflowPolicy.BLOCK.name(), "Block until free");
+    }};
+
+    private static final Map<String, String> TRANSPORT_TYPE = new HashMap<String, String>() {{
+        put(PooledTransport.TAG, "Pooled persistent connections");
+        put(UrlConnectionTransport.TAG, "Connection per message");
     }};
 
     private static final int LEVEL_DEFAULT = 3;
@@ -51,12 +136,110 @@ public final class GraylogOutputCarrierConfig {
     private static final int GRACE_MIN = 1;
     private static final int GRACE_MAX = 60;
 
+    private static final int GRACE_KEY_FIELDS_MAX = 500;
+
+    private static final int GRACE_MAX_KEYS_DEFAULT = 50000;
+    private static final int GRACE_MAX_KEYS_MIN = 1;
+    private static final int GRACE_MAX_KEYS_MAX = 1000000;
+
     private static final int TEXT_LIMIT_DEFAULT = 500;
     private static final int TEXT_LIMIT_MIN = 100;
     private static final int TEXT_LIMIT_MAX = 3000;
 
+    private static final int STACK_FRAMES_DEFAULT = 0;
+    private static final int STACK_FRAMES_MAX = 100;
+
     private static final int ADDITIONAL_FIELDS_MAX = 500;
     private static final int IGNORED_FIELDS_MAX = 500;
+    private static final int TARGETS_MAX = 2000;
+    private static final int TARGETS_COUNT_MAX = 10;
+    private static final int ROUTES_MAX = 2000;
+    private static final int PAYLOAD_TEMPLATE_MAX = 5000;
+    private static final int BULK_FIELDS_MAX = 1000;
+
+    private static final int BULK_MAX_SIZE_DEFAULT = 1024;
+    private static final int BULK_MAX_SIZE_MIN = 1;
+    private static final int BULK_MAX_SIZE_MAX = 10240;
+
+    private static final int DEDUP_FIELDS_MAX = 500;
+
+    private static final int DEDUP_TTL_DEFAULT = 60;
+    private static final int DEDUP_TTL_MIN = 1;
+    private static final int DEDUP_TTL_MAX = 86400;
+
+    private static final int DEDUP_MAX_ENTRIES_DEFAULT = 10000;
+    private static final int DEDUP_MAX_ENTRIES_MIN = 1;
+    private static final int DEDUP_MAX_ENTRIES_MAX = 1000000;
+
+    private static final int QUEUE_CAPACITY_DEFAULT = 1000;
+    private static final int QUEUE_CAPACITY_MIN = 1;
+    private static final int QUEUE_CAPACITY_MAX = 100000;
+
+    private static final int QUEUE_WORKERS_DEFAULT = 1;
+    private static final int QUEUE_WORKERS_MIN = 1;
+    private static final int QUEUE_WORKERS_MAX = 16;
+
+    private static final int SHED_HIGH_WATERMARK_DEFAULT = 80;
+    private static final int SHED_LOW_WATERMARK_DEFAULT = 50;
+    private static final int SHED_WATERMARK_MIN = 0;
+    private static final int SHED_WATERMARK_MAX = 100;
+
+    private static final int SHED_LEVEL_DEFAULT = 4;
+    private static final int SHED_LEVEL_MIN = 0;
+    private static final int SHED_LEVEL_MAX = 7;
+
+    private static final int BATCH_WINDOW_DEFAULT = 0;
+    private static final int BATCH_WINDOW_MIN = 0;
+    private static final int BATCH_WINDOW_MAX = 10000;
+
+    private static final int BATCH_SIZE_DEFAULT = 20;
+    private static final int BATCH_SIZE_MIN = 1;
+    private static final int BATCH_SIZE_MAX = 1000;
+
+    private static final int RETRY_DEADLINE_DEFAULT = 300;
+    private static final int RETRY_DEADLINE_MIN = 0;
+    private static final int RETRY_DEADLINE_MAX = 3600;
+
+    private static final int RETRY_MAX_IN_FLIGHT_DEFAULT = 100;
+    private static final int RETRY_MAX_IN_FLIGHT_MIN = 1;
+    private static final int RETRY_MAX_IN_FLIGHT_MAX = 10000;
+
+    private static final String JOURNAL_PATH_DEFAULT = "/tmp/graylog-journal";
+
+    private static final int JOURNAL_MAX_SIZE_DEFAULT = 100;
+    private static final int JOURNAL_MAX_SIZE_MIN = 1;
+    private static final int JOURNAL_MAX_SIZE_MAX = 10240;
+
+    private static final int JOURNAL_MAX_AGE_DEFAULT = 24;
+    private static final int JOURNAL_MAX_AGE_MIN = 1;
+    private static final int JOURNAL_MAX_AGE_MAX = 720;
+
+    private static final int POOL_SIZE_DEFAULT = 4;
+    private static final int POOL_SIZE_MIN = 1;
+    private static final int POOL_SIZE_MAX = 50;
+
+    private static final int CONNECT_TIMEOUT_DEFAULT = 5000;
+    private static final int READ_TIMEOUT_DEFAULT = 10000;
+    private static final int REQUEST_TIMEOUT_DEFAULT = 5000;
+    private static final int TARGET_TIMEOUT_DEFAULT = 15000;
+    private static final int TIMEOUT_MIN = 100;
+    private static final int TIMEOUT_MAX = 60000;
+
+    private static final int BREAKER_ERROR_RATE_DEFAULT = 50;
+    private static final int BREAKER_ERROR_RATE_MIN = 0;
+    private static final int BREAKER_ERROR_RATE_MAX = 100;
+
+    private static final int BREAKER_TIMEOUTS_DEFAULT = 5;
+    private static final int BREAKER_TIMEOUTS_MIN = 0;
+    private static final int BREAKER_TIMEOUTS_MAX = 100;
+
+    private static final int BREAKER_OPEN_TIME_DEFAULT = 30;
+    private static final int BREAKER_OPEN_TIME_MIN = 1;
+    private static final int BREAKER_OPEN_TIME_MAX = 3600;
+
+    private static final int BREAKER_PROBES_DEFAULT = 1;
+    private static final int BREAKER_PROBES_MIN = 1;
+    private static final int BREAKER_PROBES_MAX = 10;
 
     /**
      * Constructor.
@@ -90,6 +273,24 @@ public final class GraylogOutputCarrierConfig {
                         "Messenger channel.",
                         ConfigurationField.Optional.OPTIONAL));
 
+        // Targets field
+        configuration.addField(
+                new TextField(CONF_TARGETS, "Additional targets", null,
+                        "JSON list of additional webhooks, e.g. [{\"type\": \"TelegramSender\", \"url\": \"https://...\", \"channel\": \"-100...\"}]. Message is delivered to all targets at once.",
+                        ConfigurationField.Optional.OPTIONAL, TextField.Attribute.TEXTAREA));
+
+        // Target timeout field
+        configuration.addField(
+                new NumberField(CONF_TARGET_TIMEOUT, "Target timeout", TARGET_TIMEOUT_DEFAULT,
+                        String.format("Max wait of message in lane of each of several targets in millis (min %s, max %s).", TIMEOUT_MIN, TIMEOUT_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Routes field
+        configuration.addField(
+                new TextField(CONF_ROUTES, "Routes", null,
+                        "JSON list of routes by level and field, e.g. [{\"levels\": \"0-2\", \"targets\": \"main,target1\"}, {\"levels\": \"4\", \"targets\": \"main\", \"field\": \"app\", \"match\": \"eq:billing\"}]. First matched route wins, message without route is skipped. Targets are \"main\" and additional targets by name (\"target1\", \"target2\", ... by default).",
+                        ConfigurationField.Optional.OPTIONAL, TextField.Attribute.TEXTAREA));
+
         // Message level field
         configuration.addField(
                 new NumberField(CONF_LEVEL, "Level", LEVEL_DEFAULT,
@@ -102,12 +303,65 @@ public final class GraylogOutputCarrierConfig {
                         String.format("Wait (sec) between send, rest will be ignored (min: %s, max: %s).", GRACE_MIN, GRACE_MAX),
                         ConfigurationField.Optional.NOT_OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
 
+        // Grace type field
+        configuration.addField(
+                new DropdownField(CONF_GRACE_TYPE, "Grace type", MemoryGrace.TAG, GRACE_TYPE,
+                        "Where grace period state is kept.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Grace key fields field
+        configuration.addField(
+                new TextField(CONF_GRACE_KEY_FIELDS, "Grace key fields", null,
+                        "Fields separated by comma, separate grace period per their values, e.g. source or app,env. Used by keyed and cluster grace.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Grace max keys field
+        configuration.addField(
+                new NumberField(CONF_GRACE_MAX_KEYS, "Grace max keys", GRACE_MAX_KEYS_DEFAULT,
+                        String.format("Tracked grace keys limit, rest share one grace period (min %s, max %s).", GRACE_MAX_KEYS_MIN, GRACE_MAX_KEYS_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Digest field
+        configuration.addField(
+                new BooleanField(CONF_DIGEST, "Digest", false,
+                        "Send summary of messages skipped due to grace period once per grace window."));
+
+        // Digest key field
+        configuration.addField(
+                new TextField(CONF_DIGEST_KEY_FIELD, "Digest key field", null,
+                        "Message field counted in digest in addition to level and source.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Duplicate fields field
+        configuration.addField(
+                new TextField(CONF_DEDUP_FIELDS, "Duplicate fields", null,
+                        "Fields of message fingerprint separated by comma, e.g. message,source,facility. Repeats are skipped for duplicate TTL. Empty disables check.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Duplicate TTL field
+        configuration.addField(
+                new NumberField(CONF_DEDUP_TTL, "Duplicate TTL", DEDUP_TTL_DEFAULT,
+                        String.format("Skip repeated message for (sec) (min %s, max %s).", DEDUP_TTL_MIN, DEDUP_TTL_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Duplicate max entries field
+        configuration.addField(
+                new NumberField(CONF_DEDUP_MAX_ENTRIES, "Duplicate max entries", DEDUP_MAX_ENTRIES_DEFAULT,
+                        String.format("Remembered fingerprints limit (min %s, max %s).", DEDUP_MAX_ENTRIES_MIN, DEDUP_MAX_ENTRIES_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
         // Text limit field
         configuration.addField(
                 new NumberField(CONF_TEXT_LIMIT, "Text limit", TEXT_LIMIT_DEFAULT,
                         String.format("Text message limit (min %s, max %s)", TEXT_LIMIT_MIN, TEXT_LIMIT_MAX),
                         ConfigurationField.Optional.NOT_OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
 
+        // Stack trace summary
+        configuration.addField(
+                new NumberField(CONF_STACK_FRAMES, "Stack frames", STACK_FRAMES_DEFAULT,
+                        String.format("Top frames kept per exception of stack trace in text, the rest is counted, 0 to send text as is (max %s)", STACK_FRAMES_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
         // Message fields
         configuration.addField(
                 new TextField(CONF_IGNORED_FIELDS, "Ignored fields", null,
@@ -120,12 +374,183 @@ public final class GraylogOutputCarrierConfig {
                         "Additional fields separated by comma.",
                         ConfigurationField.Optional.OPTIONAL));
 
+        // Payload template field
+        configuration.addField(
+                new TextField(CONF_PAYLOAD_TEMPLATE, "Payload template", null,
+                        "Custom JSON body with ${field}, ${field:limit}, ${#field}...${/field} placeholders. Empty uses messenger layout.",
+                        ConfigurationField.Optional.OPTIONAL, TextField.Attribute.TEXTAREA));
+
+        // Bulk format field
+        configuration.addField(
+                new DropdownField(CONF_BULK_FORMAT, "Bulk format", BulkSender.FORMAT_NDJSON, BULK_FORMAT,
+                        "Body format of bulk webhook.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Bulk fields field
+        configuration.addField(
+                new TextField(CONF_BULK_FIELDS, "Bulk fields", null,
+                        "Message fields sent by bulk webhook separated by comma. Empty sends all fields.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Bulk max size field
+        configuration.addField(
+                new NumberField(CONF_BULK_MAX_SIZE, "Bulk max size", BULK_MAX_SIZE_DEFAULT,
+                        String.format("Bulk body limit in KB before compression, batch is split by it (min %s, max %s).", BULK_MAX_SIZE_MIN, BULK_MAX_SIZE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Bulk gzip field
+        configuration.addField(
+                new BooleanField(CONF_BULK_GZIP, "Bulk gzip", true,
+                        "Compress bulk body with gzip."));
+
         // Graylog url field
         configuration.addField(
                 new TextField(CONF_GRAYLOG_URL, "Graylog URL", null,
                         "URL to your Graylog web interface. Used to build links in notification.",
                         ConfigurationField.Optional.NOT_OPTIONAL));
 
+        // Queue capacity field
+        configuration.addField(
+                new NumberField(CONF_QUEUE_CAPACITY, "Queue capacity", QUEUE_CAPACITY_DEFAULT,
+                        String.format("Messages waiting for send (min %s, max %s).", QUEUE_CAPACITY_MIN, QUEUE_CAPACITY_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Queue workers field
+        configuration.addField(
+                new NumberField(CONF_QUEUE_WORKERS, "Queue workers", QUEUE_WORKERS_DEFAULT,
+                        String.format("Threads sending messages from queue (min %s, max %s).", QUEUE_WORKERS_MIN, QUEUE_WORKERS_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Queue overflow field
+        configuration.addField(
+                new DropdownField(CONF_QUEUE_OVERFLOW, "Queue overflow", OverflowPolicy.DROP_NEWEST.name(), QUEUE_OVERFLOW,
+                        "What to do when the queue is full. Less severe messages are dropped first.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Shed high watermark field
+        configuration.addField(
+                new NumberField(CONF_SHED_HIGH_WATERMARK, "Shed high watermark", SHED_HIGH_WATERMARK_DEFAULT,
+                        String.format("Percent of queue capacity to start shedding messages less severe than shed level at, 100 disables (min %s, max %s).", SHED_WATERMARK_MIN, SHED_WATERMARK_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Shed low watermark field
+        configuration.addField(
+                new NumberField(CONF_SHED_LOW_WATERMARK, "Shed low watermark", SHED_LOW_WATERMARK_DEFAULT,
+                        String.format("Percent of queue capacity to stop shedding at, below high watermark (min %s, max %s).", SHED_WATERMARK_MIN, SHED_WATERMARK_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Shed level field
+        configuration.addField(
+                new NumberField(CONF_SHED_LEVEL, "Shed level", SHED_LEVEL_DEFAULT,
+                        String.format("The least severe level never shed (min %s, max %s).", SHED_LEVEL_MIN, SHED_LEVEL_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Batch window field
+        configuration.addField(
+                new NumberField(CONF_BATCH_WINDOW, "Batch window", BATCH_WINDOW_DEFAULT,
+                        String.format("Collect messages for (millis) and send them packed in one request, 0 disables batching (min %s, max %s).", BATCH_WINDOW_MIN, BATCH_WINDOW_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Batch size field
+        configuration.addField(
+                new NumberField(CONF_BATCH_SIZE, "Batch size", BATCH_SIZE_DEFAULT,
+                        String.format("Batch is sent once it has that many messages (min %s, max %s).", BATCH_SIZE_MIN, BATCH_SIZE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Retry deadline field
+        configuration.addField(
+                new NumberField(CONF_RETRY_DEADLINE, "Retry deadline", RETRY_DEADLINE_DEFAULT,
+                        String.format("Retry throttled, 5xx and timed out messages for (sec), 0 disables retry (min %s, max %s).", RETRY_DEADLINE_MIN, RETRY_DEADLINE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Retry max in flight field
+        configuration.addField(
+                new NumberField(CONF_RETRY_MAX_IN_FLIGHT, "Retry max in flight", RETRY_MAX_IN_FLIGHT_DEFAULT,
+                        String.format("Messages waiting for retry at once (min %s, max %s).", RETRY_MAX_IN_FLIGHT_MIN, RETRY_MAX_IN_FLIGHT_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Journal field
+        configuration.addField(
+                new BooleanField(CONF_JOURNAL, "Journal", false,
+                        "Write messages which could not be delivered to disk journal and send them when webhook recovers."));
+
+        // Journal path field
+        configuration.addField(
+                new TextField(CONF_JOURNAL_PATH, "Journal path", JOURNAL_PATH_DEFAULT,
+                        "Journal directory, each output uses own subdirectory.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Journal max size field
+        configuration.addField(
+                new NumberField(CONF_JOURNAL_MAX_SIZE, "Journal max size", JOURNAL_MAX_SIZE_DEFAULT,
+                        String.format("Journal size limit in MB, oldest messages are dropped (min %s, max %s).", JOURNAL_MAX_SIZE_MIN, JOURNAL_MAX_SIZE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Journal max age field
+        configuration.addField(
+                new NumberField(CONF_JOURNAL_MAX_AGE, "Journal max age", JOURNAL_MAX_AGE_DEFAULT,
+                        String.format("Journal messages older than (hours) are dropped (min %s, max %s).", JOURNAL_MAX_AGE_MIN, JOURNAL_MAX_AGE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Transport type field
+        configuration.addField(
+                new DropdownField(CONF_TRANSPORT_TYPE, "Transport type", PooledTransport.TAG, TRANSPORT_TYPE,
+                        "HTTP client used to send messages.",
+                        ConfigurationField.Optional.OPTIONAL));
+
+        // Pool size field
+        configuration.addField(
+                new NumberField(CONF_POOL_SIZE, "Pool size", POOL_SIZE_DEFAULT,
+                        String.format("Persistent connections per webhook host (min %s, max %s).", POOL_SIZE_MIN, POOL_SIZE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Connect timeout field
+        configuration.addField(
+                new NumberField(CONF_CONNECT_TIMEOUT, "Connect timeout", CONNECT_TIMEOUT_DEFAULT,
+                        String.format("Connect timeout in millis (min %s, max %s).", TIMEOUT_MIN, TIMEOUT_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Read timeout field
+        configuration.addField(
+                new NumberField(CONF_READ_TIMEOUT, "Read timeout", READ_TIMEOUT_DEFAULT,
+                        String.format("Read timeout in millis (min %s, max %s).", TIMEOUT_MIN, TIMEOUT_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Request timeout field
+        configuration.addField(
+                new NumberField(CONF_REQUEST_TIMEOUT, "Request timeout", REQUEST_TIMEOUT_DEFAULT,
+                        String.format("Wait for free pooled connection in millis (min %s, max %s).", TIMEOUT_MIN, TIMEOUT_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Breaker error rate field
+        configuration.addField(
+                new NumberField(CONF_BREAKER_ERROR_RATE, "Breaker error rate", BREAKER_ERROR_RATE_DEFAULT,
+                        String.format("Open webhook circuit breaker when percent of recent requests failed, 0 disables (min %s, max %s).", BREAKER_ERROR_RATE_MIN, BREAKER_ERROR_RATE_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Breaker timeouts field
+        configuration.addField(
+                new NumberField(CONF_BREAKER_TIMEOUTS, "Breaker timeouts", BREAKER_TIMEOUTS_DEFAULT,
+                        String.format("Open webhook circuit breaker after timeouts in a row, 0 disables (min %s, max %s).", BREAKER_TIMEOUTS_MIN, BREAKER_TIMEOUTS_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Breaker open time field
+        configuration.addField(
+                new NumberField(CONF_BREAKER_OPEN_TIME, "Breaker open time", BREAKER_OPEN_TIME_DEFAULT,
+                        String.format("Fail requests at once for (sec) before probing webhook (min %s, max %s).", BREAKER_OPEN_TIME_MIN, BREAKER_OPEN_TIME_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Breaker probes field
+        configuration.addField(
+                new NumberField(CONF_BREAKER_PROBES, "Breaker probes", BREAKER_PROBES_DEFAULT,
+                        String.format("Probe requests which must succeed to close breaker (min %s, max %s).", BREAKER_PROBES_MIN, BREAKER_PROBES_MAX),
+                        ConfigurationField.Optional.OPTIONAL, NumberField.Attribute.ONLY_POSITIVE));
+
+        // Breaker fallback field
+        configuration.addField(
+                new BooleanField(CONF_BREAKER_FALLBACK, "Breaker fallback", false,
+                        "Write messages to journal while breaker is open, otherwise they are dropped. Requires journal."));
+
         return configuration;
     }
 
@@ -147,6 +572,53 @@ public final class GraylogOutputCarrierConfig {
             throw new ConfigurationException("Webhook URL field is mandatory and must not be empty.");
         }
 
+        if (configuration.stringIsSet(CONF_TARGETS)) {
+            final String targets = configuration.getString(CONF_TARGETS);
+            if (targets.length() > TARGETS_MAX) {
+                throw new ConfigurationException(String.format("Additional targets value is too long. Limit is %s symbols.", TARGETS_MAX));
+            }
+            final List<Map<String, String>> list = ParseHelper.toListMap(targets);
+            if (list == null) {
+                throw new ConfigurationException("Additional targets value must be a valid JSON list of objects");
+            }
+            if (list.size() > TARGETS_COUNT_MAX) {
+                throw new ConfigurationException(String.format("Additional targets limit is %s.", TARGETS_COUNT_MAX));
+            }
+            for (final Map<String, String> target : list) {
+                if (target == null || target.get(TARGET_TYPE) == null || !WEBHOOK_TYPE.containsKey(target.get(TARGET_TYPE))) {
+                    throw new ConfigurationException("Additional target type value is wrong.");
+                }
+                if (target.get(TARGET_URL) == null) {
+                    throw new ConfigurationException("Additional target URL is mandatory.");
+                }
+                checkUrl(target.get(TARGET_URL));
+            }
+        }
+
+        if (configuration.stringIsSet(CONF_ROUTES)) {
+            final String routes = configuration.getString(CONF_ROUTES);
+            if (routes.length() > ROUTES_MAX) {
+                throw new ConfigurationException(String.format("Routes value is too long. Limit is %s symbols.", ROUTES_MAX));
+            }
+            final List<Map<String, String>> list = ParseHelper.toListMap(routes);
+            if (list == null) {
+                throw new ConfigurationException("Routes value must be a valid JSON list of objects");
+            }
+            final List<String> names = getTargetNames(configuration);
+            for (int i = 0; i < names.size(); i++) {
+                if (names.lastIndexOf(names.get(i)) != i) {
+                    throw new ConfigurationException(String.format("Target name \"%s\" is not unique.", names.get(i)));
+                }
+            }
+            try {
+                Router.compile(list, names);
+            } catch (final IllegalArgumentException e) {
+                throw new ConfigurationException(String.format("Routes are wrong: %s", e.getMessage()), e);
+            }
+        }
+
+        checkTimeout(configuration, CONF_TARGET_TIMEOUT, "Target timeout value is wrong.");
+
         if (!configuration.intIsSet(CONF_LEVEL)) {
             throw new ConfigurationException("Level field is mandatory and must not be empty.");
         }
@@ -165,6 +637,28 @@ public final class GraylogOutputCarrierConfig {
             throw new ConfigurationException("Grace value is wrong.");
         }
 
+        if (configuration.stringIsSet(CONF_GRACE_TYPE) && !GRACE_TYPE.containsKey(configuration.getString(CONF_GRACE_TYPE))) {
+            throw new ConfigurationException("Grace type value is wrong.");
+        }
+
+        if (configuration.stringIsSet(CONF_GRACE_KEY_FIELDS)) {
+            final String grace_key_fields = configuration.getString(CONF_GRACE_KEY_FIELDS);
+            if (grace_key_fields != null && grace_key_fields.length() > GRACE_KEY_FIELDS_MAX) {
+                throw new ConfigurationException(String.format("Grace key fields value is too long. Limit is %s symbols.", GRACE_KEY_FIELDS_MAX));
+            }
+        }
+
+        if (KeyedGrace.TAG.equals(getGraceType(configuration)) && getGraceKeyFields(configuration).isEmpty()) {
+            throw new ConfigurationException("Grace key fields are mandatory for keyed grace.");
+        }
+
+        if (configuration.intIsSet(CONF_GRACE_MAX_KEYS)) {
+            final int keys = configuration.getInt(CONF_GRACE_MAX_KEYS);
+            if ((keys < GRACE_MAX_KEYS_MIN) || (keys > GRACE_MAX_KEYS_MAX)) {
+                throw new ConfigurationException("Grace max keys value is wrong.");
+            }
+        }
+
         if (!configuration.intIsSet(CONF_TEXT_LIMIT)) {
             throw new ConfigurationException("Text limit field is mandatory and must not be empty.");
         }
@@ -174,15 +668,29 @@ public final class GraylogOutputCarrierConfig {
             throw new ConfigurationException("Text limit value is wrong.");
         }
 
+        if (configuration.intIsSet(CONF_STACK_FRAMES)) {
+            final int frames = configuration.getInt(CONF_STACK_FRAMES);
+            if ((frames < 0) || (frames > STACK_FRAMES_MAX)) {
+                throw new ConfigurationException("Stack frames value is wrong.");
+            }
+        }
+
         if (configuration.stringIsSet(CONF_IGNORED_FIELDS)) {
             final String ignored_fields = configuration.getString(CONF_IGNORED_FIELDS);
             if (ignored_fields != null && ignored_fields.length() > IGNORED_FIELDS_MAX) {
                 throw new ConfigurationException(String.format("Ignored fields value is too long. Limit is %s symbols.", IGNORED_FIELDS_MAX));
             }
             // Check JSON
-            if (ParseHelper.toMapList(ignored_fields) == null) {
+            final Map<String, List<String>> rules = ParseHelper.toMapList(ignored_fields);
+            if (rules == null) {
                 throw new ConfigurationException("Ignored fields value must be a valid JSON");
             }
+            // Check regex rules
+            try {
+                new IgnoreMatcher(rules);
+            } catch (final PatternSyntaxException e) {
+                throw new ConfigurationException(String.format("Ignored fields regex is wrong: %s", e.getDescription()), e);
+            }
         }
 
         if (configuration.stringIsSet(CONF_ADDITIONAL_FIELDS)) {
@@ -192,11 +700,190 @@ public final class GraylogOutputCarrierConfig {
             }
         }
 
+        if (configuration.stringIsSet(CONF_PAYLOAD_TEMPLATE)) {
+            final String template = configuration.getString(CONF_PAYLOAD_TEMPLATE);
+            if (template.length() > PAYLOAD_TEMPLATE_MAX) {
+                throw new ConfigurationException(String.format("Payload template value is too long. Limit is %s symbols.", PAYLOAD_TEMPLATE_MAX));
+            }
+            try {
+                PayloadTemplate.compile(template);
+            } catch (final IllegalArgumentException e) {
+                throw new ConfigurationException(String.format("Payload template is wrong: %s", e.getMessage()), e);
+            }
+            if (BulkSender.TAG.equals(getWebhookType(configuration))) {
+                throw new ConfigurationException("Payload template is not supported by bulk webhook.");
+            }
+        }
+
+        if (configuration.stringIsSet(CONF_BULK_FORMAT) && !BULK_FORMAT.containsKey(configuration.getString(CONF_BULK_FORMAT))) {
+            throw new ConfigurationException("Bulk format value is wrong.");
+        }
+
+        if (configuration.stringIsSet(CONF_BULK_FIELDS) && configuration.getString(CONF_BULK_FIELDS).length() > BULK_FIELDS_MAX) {
+            throw new ConfigurationException(String.format("Bulk fields value is too long. Limit is %s symbols.", BULK_FIELDS_MAX));
+        }
+
+        if (configuration.intIsSet(CONF_BULK_MAX_SIZE)) {
+            final int size = configuration.getInt(CONF_BULK_MAX_SIZE);
+            if ((size < BULK_MAX_SIZE_MIN) || (size > BULK_MAX_SIZE_MAX)) {
+                throw new ConfigurationException("Bulk max size value is wrong.");
+            }
+        }
+
+        if (configuration.stringIsSet(CONF_DEDUP_FIELDS)) {
+            final String dedup_fields = configuration.getString(CONF_DEDUP_FIELDS);
+            if (dedup_fields != null && dedup_fields.length() > DEDUP_FIELDS_MAX) {
+                throw new ConfigurationException(String.format("Duplicate fields value is too long. Limit is %s symbols.", DEDUP_FIELDS_MAX));
+            }
+        }
+
+        if (configuration.intIsSet(CONF_DEDUP_TTL)) {
+            final int ttl = configuration.getInt(CONF_DEDUP_TTL);
+            if ((ttl < DEDUP_TTL_MIN) || (ttl > DEDUP_TTL_MAX)) {
+                throw new ConfigurationException("Duplicate TTL value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_DEDUP_MAX_ENTRIES)) {
+            final int entries = configuration.getInt(CONF_DEDUP_MAX_ENTRIES);
+            if ((entries < DEDUP_MAX_ENTRIES_MIN) || (entries > DEDUP_MAX_ENTRIES_MAX)) {
+                throw new ConfigurationException("Duplicate max entries value is wrong.");
+            }
+        }
+
         if (configuration.stringIsSet(CONF_GRAYLOG_URL)) {
             checkUrl(configuration.getString(CONF_GRAYLOG_URL));
         } else {
             throw new ConfigurationException("Graylog url field is mandatory and must not be empty.");
         }
+
+        if (configuration.intIsSet(CONF_QUEUE_CAPACITY)) {
+            final int capacity = configuration.getInt(CONF_QUEUE_CAPACITY);
+            if ((capacity < QUEUE_CAPACITY_MIN) || (capacity > QUEUE_CAPACITY_MAX)) {
+                throw new ConfigurationException("Queue capacity value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_QUEUE_WORKERS)) {
+            final int workers = configuration.getInt(CONF_QUEUE_WORKERS);
+            if ((workers < QUEUE_WORKERS_MIN) || (workers > QUEUE_WORKERS_MAX)) {
+                throw new ConfigurationException("Queue workers value is wrong.");
+            }
+        }
+
+        if (configuration.stringIsSet(CONF_QUEUE_OVERFLOW)
+                && OverflowPolicy.fromString(configuration.getString(CONF_QUEUE_OVERFLOW)) == null) {
+            throw new ConfigurationException("Queue overflow value is wrong.");
+        }
+
+        final int highWatermark = getShedHighWatermark(configuration);
+        if ((highWatermark < SHED_WATERMARK_MIN) || (highWatermark > SHED_WATERMARK_MAX)) {
+            throw new ConfigurationException("Shed high watermark value is wrong.");
+        }
+
+        final int lowWatermark = getShedLowWatermark(configuration);
+        if ((lowWatermark < SHED_WATERMARK_MIN) || (lowWatermark >= highWatermark)) {
+            throw new ConfigurationException("Shed low watermark value is wrong.");
+        }
+
+        if (configuration.intIsSet(CONF_SHED_LEVEL)) {
+            final int shedLevel = configuration.getInt(CONF_SHED_LEVEL);
+            if ((shedLevel < SHED_LEVEL_MIN) || (shedLevel > SHED_LEVEL_MAX)) {
+                throw new ConfigurationException("Shed level value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_BATCH_WINDOW)) {
+            final int window = configuration.getInt(CONF_BATCH_WINDOW);
+            if ((window < BATCH_WINDOW_MIN) || (window > BATCH_WINDOW_MAX)) {
+                throw new ConfigurationException("Batch window value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_BATCH_SIZE)) {
+            final int size = configuration.getInt(CONF_BATCH_SIZE);
+            if ((size < BATCH_SIZE_MIN) || (size > BATCH_SIZE_MAX)) {
+                throw new ConfigurationException("Batch size value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_RETRY_DEADLINE)) {
+            final int deadline = configuration.getInt(CONF_RETRY_DEADLINE);
+            if ((deadline < RETRY_DEADLINE_MIN) || (deadline > RETRY_DEADLINE_MAX)) {
+                throw new ConfigurationException("Retry deadline value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_RETRY_MAX_IN_FLIGHT)) {
+            final int inFlight = configuration.getInt(CONF_RETRY_MAX_IN_FLIGHT);
+            if ((inFlight < RETRY_MAX_IN_FLIGHT_MIN) || (inFlight > RETRY_MAX_IN_FLIGHT_MAX)) {
+                throw new ConfigurationException("Retry max in flight value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_JOURNAL_MAX_SIZE)) {
+            final int size = configuration.getInt(CONF_JOURNAL_MAX_SIZE);
+            if ((size < JOURNAL_MAX_SIZE_MIN) || (size > JOURNAL_MAX_SIZE_MAX)) {
+                throw new ConfigurationException("Journal max size value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_JOURNAL_MAX_AGE)) {
+            final int age = configuration.getInt(CONF_JOURNAL_MAX_AGE);
+            if ((age < JOURNAL_MAX_AGE_MIN) || (age > JOURNAL_MAX_AGE_MAX)) {
+                throw new ConfigurationException("Journal max age value is wrong.");
+            }
+        }
+
+        if (configuration.stringIsSet(CONF_TRANSPORT_TYPE)) {
+            final String transport = configuration.getString(CONF_TRANSPORT_TYPE);
+            if (!TRANSPORT_TYPE.containsKey(transport)) {
+                throw new ConfigurationException("Transport type value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_POOL_SIZE)) {
+            final int pool = configuration.getInt(CONF_POOL_SIZE);
+            if ((pool < POOL_SIZE_MIN) || (pool > POOL_SIZE_MAX)) {
+                throw new ConfigurationException("Pool size value is wrong.");
+            }
+        }
+
+        checkTimeout(configuration, CONF_CONNECT_TIMEOUT, "Connect timeout value is wrong.");
+        checkTimeout(configuration, CONF_READ_TIMEOUT, "Read timeout value is wrong.");
+        checkTimeout(configuration, CONF_REQUEST_TIMEOUT, "Request timeout value is wrong.");
+
+        if (configuration.intIsSet(CONF_BREAKER_ERROR_RATE)) {
+            final int rate = configuration.getInt(CONF_BREAKER_ERROR_RATE);
+            if ((rate < BREAKER_ERROR_RATE_MIN) || (rate > BREAKER_ERROR_RATE_MAX)) {
+                throw new ConfigurationException("Breaker error rate value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_BREAKER_TIMEOUTS)) {
+            final int timeouts = configuration.getInt(CONF_BREAKER_TIMEOUTS);
+            if ((timeouts < BREAKER_TIMEOUTS_MIN) || (timeouts > BREAKER_TIMEOUTS_MAX)) {
+                throw new ConfigurationException("Breaker timeouts value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_BREAKER_OPEN_TIME)) {
+            final int time = configuration.getInt(CONF_BREAKER_OPEN_TIME);
+            if ((time < BREAKER_OPEN_TIME_MIN) || (time > BREAKER_OPEN_TIME_MAX)) {
+                throw new ConfigurationException("Breaker open time value is wrong.");
+            }
+        }
+
+        if (configuration.intIsSet(CONF_BREAKER_PROBES)) {
+            final int probes = configuration.getInt(CONF_BREAKER_PROBES);
+            if ((probes < BREAKER_PROBES_MIN) || (probes > BREAKER_PROBES_MAX)) {
+                throw new ConfigurationException("Breaker probes value is wrong.");
+            }
+        }
+
+        if (isBreakerFallback(configuration) && !isJournal(configuration)) {
+            throw new ConfigurationException("Breaker fallback requires journal.");
+        }
     }
 
     /**
@@ -250,45 +937,501 @@ public final class GraylogOutputCarrierConfig {
     }
 
     /**
-     * Get text limit.
+     * Get grace type, output saved before grace types keeps file grace.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getGraceType(final Configuration configuration) {
+        return configuration.stringIsSet(CONF_GRACE_TYPE) ? configuration.getString(CONF_GRACE_TYPE) : FileGrace.TAG;
+    }
+
+    /**
+     * Get grace key fields.
+     *
+     * @param configuration Configuration
+     * @return List
+     */
+    public static List<String> getGraceKeyFields(final Configuration configuration) {
+        final List<String> fields = ParseHelper.toList(configuration.getString(CONF_GRACE_KEY_FIELDS));
+        fields.removeIf(String::isEmpty);
+        return fields;
+    }
+
+    /**
+     * Get grace max keys.
      *
      * @param configuration Configuration
      * @return int
      */
-    public static int getTextLimit(final Configuration configuration) {
-        return configuration.getInt(CONF_TEXT_LIMIT);
+    public static int getGraceMaxKeys(final Configuration configuration) {
+        return configuration.intIsSet(CONF_GRACE_MAX_KEYS) ? configuration.getInt(CONF_GRACE_MAX_KEYS) : GRACE_MAX_KEYS_DEFAULT;
     }
 
     /**
-     * Get Graylog URL.
+     * Is digest enabled.
      *
      * @param configuration Configuration
-     * @return String
+     * @return boolean
      */
-    public static String getGraylogUrl(final Configuration configuration) {
-        return configuration.getString(CONF_GRAYLOG_URL);
+    public static boolean isDigest(final Configuration configuration) {
+        return configuration.getBoolean(CONF_DIGEST, false);
     }
 
     /**
-     * Get ignored fields.
+     * Get digest key field.
      *
      * @param configuration Configuration
-     * @return Map
+     * @return String
      */
-    public static Map<String, List<String>> getIgnoredFields(final Configuration configuration) {
-        return ParseHelper.toMapList(configuration.getString(CONF_IGNORED_FIELDS));
+    public static String getDigestKeyField(final Configuration configuration) {
+        return configuration.getString(CONF_DIGEST_KEY_FIELD);
     }
 
     /**
-     * Get additional fields.
+     * Get text limit.
      *
      * @param configuration Configuration
-     * @return List
+     * @return int
+     */
+    public static int getTextLimit(final Configuration configuration) {
+        return configuration.getInt(CONF_TEXT_LIMIT);
+    }
+
+    /**
+     * Get top frames kept per exception of stack trace.
+     *
+     * @param configuration Configuration
+     * @return int, 0 if disabled
+     */
+    public static int getStackFrames(final Configuration configuration) {
+        return configuration.intIsSet(CONF_STACK_FRAMES) ? configuration.getInt(CONF_STACK_FRAMES) : STACK_FRAMES_DEFAULT;
+    }
+
+    /**
+     * Get Graylog URL.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getGraylogUrl(final Configuration configuration) {
+        return configuration.getString(CONF_GRAYLOG_URL);
+    }
+
+    /**
+     * Get queue capacity.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getQueueCapacity(final Configuration configuration) {
+        return configuration.intIsSet(CONF_QUEUE_CAPACITY) ? configuration.getInt(CONF_QUEUE_CAPACITY) : QUEUE_CAPACITY_DEFAULT;
+    }
+
+    /**
+     * Get queue workers.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getQueueWorkers(final Configuration configuration) {
+        return configuration.intIsSet(CONF_QUEUE_WORKERS) ? configuration.getInt(CONF_QUEUE_WORKERS) : QUEUE_WORKERS_DEFAULT;
+    }
+
+    /**
+     * Get batch window.
+     *
+     * @param configuration Configuration
+     * @return int millis, 0 if batching is disabled
+     */
+    public static int getBatchWindow(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BATCH_WINDOW) ? configuration.getInt(CONF_BATCH_WINDOW) : BATCH_WINDOW_DEFAULT;
+    }
+
+    /**
+     * Get batch size.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getBatchSize(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BATCH_SIZE) ? configuration.getInt(CONF_BATCH_SIZE) : BATCH_SIZE_DEFAULT;
+    }
+
+    /**
+     * Get shed high watermark.
+     *
+     * @param configuration Configuration
+     * @return int percent of queue capacity
+     */
+    public static int getShedHighWatermark(final Configuration configuration) {
+        return configuration.intIsSet(CONF_SHED_HIGH_WATERMARK) ? configuration.getInt(CONF_SHED_HIGH_WATERMARK) : SHED_HIGH_WATERMARK_DEFAULT;
+    }
+
+    /**
+     * Get shed low watermark.
+     *
+     * @param configuration Configuration
+     * @return int percent of queue capacity
+     */
+    public static int getShedLowWatermark(final Configuration configuration) {
+        return configuration.intIsSet(CONF_SHED_LOW_WATERMARK) ? configuration.getInt(CONF_SHED_LOW_WATERMARK) : SHED_LOW_WATERMARK_DEFAULT;
+    }
+
+    /**
+     * Get shed level.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getShedLevel(final Configuration configuration) {
+        return configuration.intIsSet(CONF_SHED_LEVEL) ? configuration.getInt(CONF_SHED_LEVEL) : SHED_LEVEL_DEFAULT;
+    }
+
+    /**
+     * Get queue overflow policy.
+     *
+     * @param configuration Configuration
+     * @return OverflowPolicy
+     */
+    public static OverflowPolicy getQueueOverflow(final Configuration configuration) {
+        final OverflowPolicy policy = OverflowPolicy.fromString(configuration.getString(CONF_QUEUE_OVERFLOW));
+        return policy != null ? policy : OverflowPolicy.DROP_NEWEST;
+    }
+
+    /**
+     * Get retry deadline.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getRetryDeadline(final Configuration configuration) {
+        return configuration.intIsSet(CONF_RETRY_DEADLINE) ? configuration.getInt(CONF_RETRY_DEADLINE) : RETRY_DEADLINE_DEFAULT;
+    }
+
+    /**
+     * Get retry max in flight.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getRetryMaxInFlight(final Configuration configuration) {
+        return configuration.intIsSet(CONF_RETRY_MAX_IN_FLIGHT) ? configuration.getInt(CONF_RETRY_MAX_IN_FLIGHT) : RETRY_MAX_IN_FLIGHT_DEFAULT;
+    }
+
+    /**
+     * Is journal enabled.
+     *
+     * @param configuration Configuration
+     * @return boolean
+     */
+    public static boolean isJournal(final Configuration configuration) {
+        return configuration.getBoolean(CONF_JOURNAL, false);
+    }
+
+    /**
+     * Get journal path.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getJournalPath(final Configuration configuration) {
+        return configuration.stringIsSet(CONF_JOURNAL_PATH) ? configuration.getString(CONF_JOURNAL_PATH) : JOURNAL_PATH_DEFAULT;
+    }
+
+    /**
+     * Get journal max size.
+     *
+     * @param configuration Configuration
+     * @return int MB
+     */
+    public static int getJournalMaxSize(final Configuration configuration) {
+        return configuration.intIsSet(CONF_JOURNAL_MAX_SIZE) ? configuration.getInt(CONF_JOURNAL_MAX_SIZE) : JOURNAL_MAX_SIZE_DEFAULT;
+    }
+
+    /**
+     * Get journal max age.
+     *
+     * @param configuration Configuration
+     * @return int hours
+     */
+    public static int getJournalMaxAge(final Configuration configuration) {
+        return configuration.intIsSet(CONF_JOURNAL_MAX_AGE) ? configuration.getInt(CONF_JOURNAL_MAX_AGE) : JOURNAL_MAX_AGE_DEFAULT;
+    }
+
+    /**
+     * Get transport type.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getTransportType(final Configuration configuration) {
+        return configuration.stringIsSet(CONF_TRANSPORT_TYPE) ? configuration.getString(CONF_TRANSPORT_TYPE) : PooledTransport.TAG;
+    }
+
+    /**
+     * Get connection pool size per route.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getPoolSize(final Configuration configuration) {
+        return configuration.intIsSet(CONF_POOL_SIZE) ? configuration.getInt(CONF_POOL_SIZE) : POOL_SIZE_DEFAULT;
+    }
+
+    /**
+     * Get connect timeout.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getConnectTimeout(final Configuration configuration) {
+        return configuration.intIsSet(CONF_CONNECT_TIMEOUT) ? configuration.getInt(CONF_CONNECT_TIMEOUT) : CONNECT_TIMEOUT_DEFAULT;
+    }
+
+    /**
+     * Get read timeout.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getReadTimeout(final Configuration configuration) {
+        return configuration.intIsSet(CONF_READ_TIMEOUT) ? configuration.getInt(CONF_READ_TIMEOUT) : READ_TIMEOUT_DEFAULT;
+    }
+
+    /**
+     * Get additional targets, each has type, url and optional channel.
+     *
+     * @param configuration Configuration
+     * @return List
+     */
+    public static List<Map<String, String>> getTargets(final Configuration configuration) {
+        final List<Map<String, String>> targets = configuration.stringIsSet(CONF_TARGETS)
+                ? ParseHelper.toListMap(configuration.getString(CONF_TARGETS)) : null;
+        return targets != null ? targets : new ArrayList<>();
+    }
+
+    /**
+     * Get target names: "main" for webhook URL, then additional targets by name or "targetN".
+     *
+     * @param configuration Configuration
+     * @return List
+     */
+    public static List<String> getTargetNames(final Configuration configuration) {
+        final List<String> names = new ArrayList<>();
+        names.add(TARGET_MAIN);
+        final List<Map<String, String>> targets = getTargets(configuration);
+        for (int i = 0; i < targets.size(); i++) {
+            final String name = targets.get(i).get(TARGET_NAME);
+            names.add(name != null && !name.trim().isEmpty() ? name.trim() : "target" + (i + 1));
+        }
+        return names;
+    }
+
+    /**
+     * Get compiled router.
+     *
+     * @param configuration Configuration
+     * @return Router or null if not set
+     */
+    public static Router getRouter(final Configuration configuration) {
+        final List<Map<String, String>> routes = configuration.stringIsSet(CONF_ROUTES)
+                ? ParseHelper.toListMap(configuration.getString(CONF_ROUTES)) : null;
+        return routes != null ? Router.compile(routes, getTargetNames(configuration)) : null;
+    }
+
+    /**
+     * Get target timeout.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getTargetTimeout(final Configuration configuration) {
+        return configuration.intIsSet(CONF_TARGET_TIMEOUT) ? configuration.getInt(CONF_TARGET_TIMEOUT) : TARGET_TIMEOUT_DEFAULT;
+    }
+
+    /**
+     * Get request timeout.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getRequestTimeout(final Configuration configuration) {
+        return configuration.intIsSet(CONF_REQUEST_TIMEOUT) ? configuration.getInt(CONF_REQUEST_TIMEOUT) : REQUEST_TIMEOUT_DEFAULT;
+    }
+
+    /**
+     * Get breaker error rate.
+     *
+     * @param configuration Configuration
+     * @return int percent, 0 if disabled
+     */
+    public static int getBreakerErrorRate(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BREAKER_ERROR_RATE) ? configuration.getInt(CONF_BREAKER_ERROR_RATE) : BREAKER_ERROR_RATE_DEFAULT;
+    }
+
+    /**
+     * Get breaker timeouts.
+     *
+     * @param configuration Configuration
+     * @return int timeouts in a row, 0 if disabled
+     */
+    public static int getBreakerTimeouts(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BREAKER_TIMEOUTS) ? configuration.getInt(CONF_BREAKER_TIMEOUTS) : BREAKER_TIMEOUTS_DEFAULT;
+    }
+
+    /**
+     * Get breaker open time.
+     *
+     * @param configuration Configuration
+     * @return int sec
+     */
+    public static int getBreakerOpenTime(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BREAKER_OPEN_TIME) ? configuration.getInt(CONF_BREAKER_OPEN_TIME) : BREAKER_OPEN_TIME_DEFAULT;
+    }
+
+    /**
+     * Get breaker probes.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getBreakerProbes(final Configuration configuration) {
+        return configuration.intIsSet(CONF_BREAKER_PROBES) ? configuration.getInt(CONF_BREAKER_PROBES) : BREAKER_PROBES_DEFAULT;
+    }
+
+    /**
+     * Is breaker fallback enabled.
+     *
+     * @param configuration Configuration
+     * @return boolean
+     */
+    public static boolean isBreakerFallback(final Configuration configuration) {
+        return configuration.getBoolean(CONF_BREAKER_FALLBACK, false);
+    }
+
+    /**
+     * Get compiled ignored fields rules.
+     *
+     * @param configuration Configuration
+     * @return IgnoreMatcher
+     */
+    public static IgnoreMatcher getIgnoredFields(final Configuration configuration) {
+        return new IgnoreMatcher(ParseHelper.toMapList(configuration.getString(CONF_IGNORED_FIELDS)));
+    }
+
+    /**
+     * Get compiled payload template.
+     *
+     * @param configuration Configuration
+     * @return PayloadTemplate or null if not set
+     */
+    public static PayloadTemplate getPayloadTemplate(final Configuration configuration) {
+        return configuration.stringIsSet(CONF_PAYLOAD_TEMPLATE)
+                ? PayloadTemplate.compile(configuration.getString(CONF_PAYLOAD_TEMPLATE)) : null;
+    }
+
+    /**
+     * Get bulk format.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getBulkFormat(final Configuration configuration) {
+        return configuration.stringIsSet(CONF_BULK_FORMAT) ? configuration.getString(CONF_BULK_FORMAT) : BulkSender.FORMAT_NDJSON;
+    }
+
+    /**
+     * Get bulk fields.
+     *
+     * @param configuration Configuration
+     * @return List, empty to send all fields
+     */
+    public static List<String> getBulkFields(final Configuration configuration) {
+        final List<String> fields = ParseHelper.toList(configuration.getString(CONF_BULK_FIELDS));
+        fields.removeIf(String::isEmpty);
+        return fields;
+    }
+
+    /**
+     * Get bulk body limit.
+     *
+     * @param configuration Configuration
+     * @return int bytes
+     */
+    public static int getBulkMaxSize(final Configuration configuration) {
+        return (configuration.intIsSet(CONF_BULK_MAX_SIZE) ? configuration.getInt(CONF_BULK_MAX_SIZE) : BULK_MAX_SIZE_DEFAULT) * 1024;
+    }
+
+    /**
+     * Is bulk body compressed.
+     *
+     * @param configuration Configuration
+     * @return boolean
+     */
+    public static boolean isBulkGzip(final Configuration configuration) {
+        return configuration.getBoolean(CONF_BULK_GZIP, true);
+    }
+
+    /**
+     * Get duplicate fingerprint fields.
+     *
+     * @param configuration Configuration
+     * @return List
+     */
+    public static List<String> getDedupFields(final Configuration configuration) {
+        final List<String> fields = ParseHelper.toList(configuration.getString(CONF_DEDUP_FIELDS));
+        fields.removeIf(String::isEmpty);
+        return fields;
+    }
+
+    /**
+     * Get duplicate TTL.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getDedupTtl(final Configuration configuration) {
+        return configuration.intIsSet(CONF_DEDUP_TTL) ? configuration.getInt(CONF_DEDUP_TTL) : DEDUP_TTL_DEFAULT;
+    }
+
+    /**
+     * Get duplicate cache max entries.
+     *
+     * @param configuration Configuration
+     * @return int
+     */
+    public static int getDedupMaxEntries(final Configuration configuration) {
+        return configuration.intIsSet(CONF_DEDUP_MAX_ENTRIES) ? configuration.getInt(CONF_DEDUP_MAX_ENTRIES) : DEDUP_MAX_ENTRIES_DEFAULT;
+    }
+
+    /**
+     * Get additional fields.
+     *
+     * @param configuration Configuration
+     * @return List
      */
     public static List<String> getAdditionalFields(final Configuration configuration) {
         return ParseHelper.toList(configuration.getString(CONF_ADDITIONAL_FIELDS));
     }
 
+    /**
+     * Check timeout.
+     *
+     * @param configuration Configuration
+     * @param field         String
+     * @param error         String
+     * @throws ConfigurationException Exception
+     */
+    private static void checkTimeout(final Configuration configuration, final String field, final String error) throws ConfigurationException {
+        if (configuration.intIsSet(field)) {
+            final int timeout = configuration.getInt(field);
+            if ((timeout < TIMEOUT_MIN) || (timeout > TIMEOUT_MAX)) {
+                throw new ConfigurationException(error);
+            }
+        }
+    }
+
     /**
      * Check URL.
      *
@@ -1,6 +1,11 @@
 package com.alchemist.graylog.plugin;
 
+import com.alchemist.graylog.plugin.audit.AuditRing;
+import com.alchemist.graylog.plugin.grace.IGraceStore;
+import com.alchemist.graylog.plugin.grace.MongoGraceStore;
 import com.alchemist.graylog.plugin.output.GraylogOutputCarrierMessageOutput;
+import com.alchemist.graylog.plugin.rest.AuditResource;
+import com.alchemist.graylog.plugin.transport.EndpointRegistry;
 import org.graylog2.plugin.PluginModule;
 
 /**
@@ -15,6 +20,10 @@ public final class GraylogOutputCarrierPluginModule extends PluginModule {
      */
     @Override
     protected void configure() {
+        bind(AuditRing.class).asEagerSingleton();
+        bind(EndpointRegistry.class).asEagerSingleton();
+        bind(IGraceStore.class).to(MongoGraceStore.class);
         addMessageOutput(GraylogOutputCarrierMessageOutput.class);
+        addRestResource(AuditResource.class);
     }
 }
@@ -0,0 +1,79 @@
+package com.alchemist.graylog.plugin.audit;
+
+import com.alchemist.graylog.plugin.metrics.SkipReason;
+
+/**
+ * Class AuditRecord.
+ * <p>
+ * Compact record of one suppression decision.
+ *
+ * @author Alchemist
+ */
+public final class AuditRecord {
+    private final long timestamp;
+    private final String stream;
+    private final String messageId;
+    private final SkipReason reason;
+    private final String detail;
+
+    /**
+     * Constructor.
+     *
+     * @param stream    String stream id
+     * @param messageId String
+     * @param reason    SkipReason
+     * @param detail    String
+     */
+    public AuditRecord(final String stream, final String messageId, final SkipReason reason, final String detail) {
+        this.timestamp = System.currentTimeMillis();
+        this.stream = stream;
+        this.messageId = messageId;
+        this.reason = reason;
+        this.detail = detail;
+    }
+
+    /**
+     * Get timestamp.
+     *
+     * @return long millis
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get stream id.
+     *
+     * @return String
+     */
+    public String getStream() {
+        return stream;
+    }
+
+    /**
+     * Get message id.
+     *
+     * @return String
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Get reason.
+     *
+     * @return SkipReason
+     */
+    public SkipReason getReason() {
+        return reason;
+    }
+
+    /**
+     * Get detail.
+     *
+     * @return String
+     */
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,67 @@
+package com.alchemist.graylog.plugin.audit;
+
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Class AuditRing.
+ * <p>
+ * Node-wide fixed size ring of recent suppression decisions of all outputs.
+ * Writers claim slot by atomic cursor and overwrite the oldest record, readers never block writers
+ * and may see record overwritten while reading.
+ *
+ * @author Alchemist
+ */
+@Singleton
+public final class AuditRing {
+    private static final int SIZE = 1024; // power of two
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<AuditRecord> records = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * Add record.
+     *
+     * @param record AuditRecord
+     */
+    public void add(final AuditRecord record) {
+        records.lazySet((int) (cursor.getAndIncrement() & MASK), record);
+    }
+
+    /**
+     * Get recent records, newest first.
+     *
+     * @param stream String stream id, null for all streams
+     * @param limit  int
+     * @return List
+     */
+    public List<AuditRecord> getRecent(final String stream, final int limit) {
+        return getRecent(stream, limit, id -> true);
+    }
+
+    /**
+     * Get recent records of permitted streams, newest first.
+     *
+     * @param stream    String stream id, null for all streams
+     * @param limit     int
+     * @param permitted Predicate of stream id
+     * @return List
+     */
+    public List<AuditRecord> getRecent(final String stream, final int limit, final Predicate<String> permitted) {
+        final List<AuditRecord> result = new ArrayList<>(Math.min(limit, SIZE));
+        final long end = cursor.get();
+        for (long i = end - 1; i >= Math.max(0, end - SIZE) && result.size() < limit; i--) {
+            final AuditRecord record = records.get((int) (i & MASK));
+            if (record != null && (stream == null || stream.equals(record.getStream())) && permitted.test(record.getStream())) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.alchemist.graylog.plugin.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class SampledLogger.
+ * <p>
+ * Logs first lines of each interval, rest is only counted and reported by one summary line
+ * when the next interval starts. Suppressed lines are never formatted.
+ *
+ * @author Alchemist
+ */
+public final class SampledLogger {
+    private final Logger logger;
+    private final String name;
+    private final int limit;
+    private final long interval;
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param logger   Logger
+     * @param name     String used in summary line
+     * @param limit    int lines per interval
+     * @param interval int sec
+     */
+    public SampledLogger(final Logger logger, final String name, final int limit, final int interval) {
+        this.logger = logger;
+        this.name = name;
+        this.limit = limit;
+        this.interval = TimeUnit.SECONDS.toMillis(interval);
+        this.window.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Log line if interval limit is not reached.
+     *
+     * @param level   Level
+     * @param message Supplier
+     */
+    public void log(final Level level, final Supplier<String> message) {
+        final long now = System.currentTimeMillis();
+        final long start = window.get();
+        if (now - start >= interval && window.compareAndSet(start, now)) {
+            final int suppressed = count.getAndSet(0) - limit;
+            if (suppressed > 0) {
+                logger.info(String.format("Suppressed %s %s log lines in last %s sec", suppressed, name,
+                        TimeUnit.MILLISECONDS.toSeconds(now - start)));
+            }
+        }
+
+        if (count.incrementAndGet() <= limit) {
+            logger.log(level, message);
+        }
+    }
+}
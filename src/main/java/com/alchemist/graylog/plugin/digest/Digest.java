@@ -0,0 +1,213 @@
+package com.alchemist.graylog.plugin.digest;
+
+import com.alchemist.graylog.plugin.dispatch.Dispatcher;
+import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import com.alchemist.graylog.plugin.metrics.SkipReason;
+import com.alchemist.graylog.plugin.sender.Notification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Class Digest.
+ * <p>
+ * Counts messages suppressed by grace period and sends one summary message every grace period. Summary is sent on
+ * fixed interval of grace length started with output, not when a grace window closes: with keyed grace windows are per
+ * key and with file or cluster grace their ends are not known to output. Writers hold the window they count into, so
+ * swapped window is summarized only after all its counts are in.
+ *
+ * @author Alchemist
+ */
+public final class Digest {
+    private static final Logger logger = Logger.getLogger(Digest.class.getName());
+
+    public static final String SOURCE = "digest";
+
+    private static final int LEVELS = MessageHelper.DEFAULT_LEVEL + 1;
+    private static final int KEYS_MAX = 100;
+    private static final int TOP = 5;
+    private static final String OTHER = "other";
+
+    private final String keyField;
+    private final int wait;
+    private final Dispatcher dispatcher;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+
+    /**
+     * Constructor.
+     *
+     * @param name       String
+     * @param keyField   String field to group by, may be null
+     * @param wait       int grace in sec
+     * @param dispatcher Dispatcher
+     */
+    public Digest(final String name, final String keyField, final int wait, final Dispatcher dispatcher) {
+        this.keyField = keyField != null && !keyField.trim().isEmpty() ? keyField.trim() : null;
+        this.wait = wait;
+        this.dispatcher = dispatcher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("carrier-digest-" + name + "-%d")
+                .setDaemon(true)
+                .build());
+        this.scheduler.scheduleAtFixedRate(this::flush, wait, wait, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Count suppressed message.
+     *
+     * @param message Message
+     * @param level   int
+     */
+    public void add(final Message message, final int level) {
+        Window current;
+        while (true) {
+            current = window.get();
+            current.writers.incrementAndGet();
+            if (window.get() == current) {
+                break;
+            }
+            // Window was swapped by flush, count into the new one
+            current.writers.decrementAndGet();
+        }
+
+        try {
+            count(current, message, level);
+        } finally {
+            current.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Count message into window.
+     *
+     * @param current Window
+     * @param message Message
+     * @param level   int
+     */
+    private void count(final Window current, final Message message, final int level) {
+        current.total.increment();
+        current.levels.incrementAndGet(Math.max(0, Math.min(level, LEVELS - 1)));
+        increment(current.sources, message.getSource());
+        if (keyField != null) {
+            increment(current.keys, MessageHelper.getStringValue(message, keyField));
+        }
+    }
+
+    /**
+     * Send summary of closed window.
+     */
+    public void flush() {
+        final Window closed = window.getAndSet(new Window());
+        while (closed.writers.get() > 0) {
+            Thread.yield();
+        }
+        final long total = closed.total.sum();
+        if (total == 0) {
+            return;
+        }
+
+        int level = MessageHelper.DEFAULT_LEVEL;
+        final StringBuilder levels = new StringBuilder();
+        for (int i = 0; i < LEVELS; i++) {
+            final long count = closed.levels.get(i);
+            if (count > 0) {
+                level = Math.min(level, i);
+                levels.append(levels.length() > 0 ? ", " : "").append(i).append('=').append(count);
+            }
+        }
+
+        final StringBuilder text = new StringBuilder()
+                .append(String.format("Suppressed %s messages in %s sec.", total, wait))
+                .append(" Levels: ").append(levels).append('.')
+                .append(" Sources: ").append(top(closed.sources)).append('.');
+        if (keyField != null) {
+            text.append(' ').append(keyField).append(": ").append(top(closed.keys)).append('.');
+        }
+
+        final Message summary = new Message(text.toString(), SOURCE, Tools.nowUTC());
+        summary.addField("level", level);
+        final SkipReason reason = dispatcher.dispatch(new Notification(summary, level));
+        if (reason != null) {
+            logger.warning(String.format("Dropped digest message due to %s", reason.getTag()));
+        }
+    }
+
+    /**
+     * Stop scheduler and send rest of window.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Increment counter of key, keys over limit are counted as other.
+     *
+     * @param counters Map
+     * @param key      String
+     */
+    private static void increment(final Map<String, LongAdder> counters, final String key) {
+        final String name = key != null ? key : OTHER;
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.size() < KEYS_MAX
+                    ? counters.computeIfAbsent(name, k -> new LongAdder())
+                    : counters.computeIfAbsent(OTHER, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Format most frequent keys.
+     *
+     * @param counters Map
+     * @return String
+     */
+    private static String top(final Map<String, LongAdder> counters) {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (final Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().sum()));
+        }
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < entries.size() && i < TOP; i++) {
+            buf.append(i > 0 ? ", " : "").append(entries.get(i).getKey()).append('=').append(entries.get(i).getValue());
+        }
+        if (entries.size() > TOP) {
+            buf.append(String.format(" and %s more", entries.size() - TOP));
+        }
+        return buf.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Window.
+     *
+     * @author Alchemist
+     */
+    private static final class Window {
+        private final AtomicInteger writers = new AtomicInteger();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLongArray levels = new AtomicLongArray(LEVELS);
+        private final Map<String, LongAdder> sources = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> keys = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,504 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.metrics.SkipReason;
+import com.alchemist.graylog.plugin.sender.Notification;
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * Class Dispatcher.
+ * <p>
+ * Bounded queue between output and targets. Output threads only enqueue messages,
+ * worker threads drain the queue and perform HTTP calls. Queue has lane per message level, the most severe
+ * messages are sent first and less severe ones are shed above queue high watermark. With several targets each target has
+ * its own bounded lane with own threads, worker hands message to lanes of its targets without waiting, so slow target
+ * does not delay the others. Full lane drops message for its target, message waiting in lane longer than target timeout
+ * is dropped when its turn comes.
+ * With batch window worker collects messages for the window or up to batch size and each target sender packs
+ * them into as few requests as it can.
+ *
+ * @author Alchemist
+ */
+public final class Dispatcher {
+    private static final Logger logger = Logger.getLogger(Dispatcher.class.getName());
+
+    private static final long POLL_TIMEOUT = 500; // millis
+    private static final long STOP_TIMEOUT = 5000; // millis
+
+    private final LaneQueue queue;
+    private final OverflowPolicy policy;
+    private final List<Target> targets;
+    private final long allTargets;
+    private final long targetTimeout;
+    private final long batchWindow;
+    private final int batchSize;
+    private final RetryScheduler retry;
+    private final OutputMetrics metrics;
+    private final ExecutorService workers;
+    private final Lane[] lanes;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicBoolean shedding = new AtomicBoolean();
+
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     *
+     * @param name          String
+     * @param targets       List of Target
+     * @param targetTimeout int millis message may wait in target lane, used with several targets
+     * @param batchWindow   int millis, 0 to send each message at once
+     * @param batchSize     int
+     * @param capacity      int
+     * @param highWatermark int percent of capacity to start shedding at, 100 disables shedding
+     * @param lowWatermark  int percent of capacity to stop shedding at
+     * @param shedLevel     int the least severe level never shed
+     * @param workers       int
+     * @param policy        OverflowPolicy
+     * @param retry         RetryScheduler
+     * @param metrics       OutputMetrics
+     */
+    public Dispatcher(final String name, final List<Target> targets, final int targetTimeout, final int batchWindow,
+                      final int batchSize, final int capacity, final int highWatermark, final int lowWatermark,
+                      final int shedLevel, final int workers, final OverflowPolicy policy, final RetryScheduler retry,
+                      final OutputMetrics metrics) {
+        this.queue = new LaneQueue(capacity,
+                highWatermark < 100 ? Math.max(1, capacity * highWatermark / 100) : Integer.MAX_VALUE,
+                capacity * lowWatermark / 100, shedLevel);
+        this.policy = policy;
+        this.targets = new ArrayList<>(targets);
+        this.allTargets = (1L << this.targets.size()) - 1;
+        this.targetTimeout = TimeUnit.MILLISECONDS.toNanos(targetTimeout);
+        this.batchWindow = TimeUnit.MILLISECONDS.toNanos(batchWindow);
+        this.batchSize = batchWindow > 0 ? batchSize : 1;
+        this.retry = retry;
+        this.metrics = metrics;
+        this.workers = Executors.newFixedThreadPool(workers, new ThreadFactoryBuilder()
+                .setNameFormat("carrier-dispatcher-" + name + "-%d")
+                .setDaemon(true)
+                .build());
+        this.lanes = this.targets.size() > 1 ? new Lane[this.targets.size()] : null;
+        if (this.lanes != null) {
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane(name + "-" + i, workers, capacity);
+            }
+        }
+
+        this.running = true;
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::drain);
+        }
+    }
+
+    /**
+     * Put notification to queue, full queue drops less severe message first.
+     *
+     * @param entry Notification
+     * @return SkipReason why notification was not queued, null if queued
+     */
+    public SkipReason dispatch(final Notification entry) {
+        if (!running) {
+            return SkipReason.QUEUE;
+        }
+
+        // Shed less severe messages above high watermark
+        final boolean isShed = queue.isShed(entry);
+        report();
+        if (isShed) {
+            shed.incrementAndGet();
+            metrics.skipped(SkipReason.SHED);
+            return SkipReason.SHED;
+        }
+
+        final Notification evicted;
+        switch (policy) {
+            case BLOCK:
+                try {
+                    evicted = queue.put(entry);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop();
+                    return SkipReason.QUEUE;
+                }
+                break;
+            case DROP_OLDEST:
+                evicted = queue.offer(entry, true);
+                break;
+            default:
+                evicted = queue.offer(entry, false);
+        }
+
+        if (evicted != null) {
+            drop();
+        }
+        return evicted == entry ? SkipReason.QUEUE : null;
+    }
+
+    /**
+     * Get queue size.
+     *
+     * @return int
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Get dropped messages count.
+     *
+     * @return long
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Get shed messages count.
+     *
+     * @return long
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * Get count of messages waiting in lane of target.
+     *
+     * @param index int target index
+     * @return int, 0 with one target
+     */
+    public int getLaneSize(final int index) {
+        return lanes != null ? lanes[index].executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Get count of messages dropped by lane of target, full or waiting too long.
+     *
+     * @param index int target index
+     * @return long, 0 with one target
+     */
+    public long getLaneDropped(final int index) {
+        return lanes != null ? lanes[index].dropped.get() : 0;
+    }
+
+    /**
+     * Is queue shedding less severe messages.
+     *
+     * @return boolean
+     */
+    public boolean isShedding() {
+        return queue.isShedding();
+    }
+
+    /**
+     * Stop workers, rest of queue is sent until timeout.
+     */
+    public void stop() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+                logger.warning(String.format("Dispatcher stopped, lost messages: %s", queue.size()));
+            }
+        } catch (final InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (lanes != null) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT);
+            for (final Lane lane : lanes) {
+                lane.executor.shutdown();
+            }
+            try {
+                for (final Lane lane : lanes) {
+                    if (!lane.executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        lane.executor.shutdownNow();
+                    }
+                }
+            } catch (final InterruptedException e) {
+                for (final Lane lane : lanes) {
+                    lane.executor.shutdownNow();
+                }
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Log start and end of shedding.
+     */
+    private void report() {
+        final boolean current = queue.isShedding();
+        if (shedding.compareAndSet(!current, current)) {
+            if (current) {
+                logger.warning(String.format("Queue reached high watermark, shedding messages, queued: %s", queue.size()));
+            } else {
+                logger.info(String.format("Queue fell to low watermark, shed messages in total: %s", shed.get()));
+            }
+        }
+    }
+
+    /**
+     * Count dropped message.
+     */
+    private void drop() {
+        dropped.incrementAndGet();
+        metrics.skipped(SkipReason.QUEUE);
+    }
+
+    /**
+     * Worker loop.
+     */
+    private void drain() {
+        final List<Notification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            final Notification entry;
+            try {
+                entry = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (entry == null) {
+                continue;
+            }
+
+            if (batchSize > 1) {
+                batch.add(entry);
+                try {
+                    collect(batch);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                deliver(batch);
+                batch.clear();
+                continue;
+            }
+
+            final long routed = entry.getTargets() & allTargets;
+            if (lanes == null) {
+                if (routed != 0) {
+                    deliver(targets.get(0), entry);
+                }
+            } else {
+                fanout(routed, i -> () -> deliver(targets.get(i), entry));
+            }
+        }
+    }
+
+    /**
+     * Collect batch until batch window ends or batch is full.
+     *
+     * @param batch List of Notification with first entry
+     * @throws InterruptedException Exception
+     */
+    private void collect(final List<Notification> batch) throws InterruptedException {
+        final long deadline = System.nanoTime() + batchWindow;
+        while (batch.size() < batchSize) {
+            Notification next = queue.poll();
+            if (next == null) {
+                final long wait = deadline - System.nanoTime();
+                if (wait <= 0 || !running) {
+                    return;
+                }
+                next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Deliver batch, each target gets its routed part of batch.
+     *
+     * @param batch List of Notification
+     */
+    private void deliver(final List<Notification> batch) {
+        long routed = 0;
+        for (final Notification entry : batch) {
+            routed |= entry.getTargets();
+        }
+        routed &= allTargets;
+
+        if (lanes == null) {
+            if (routed != 0) {
+                deliver(targets.get(0), select(batch, 0));
+            }
+        } else {
+            fanout(routed, i -> {
+                final List<Notification> selected = select(batch, i);
+                return () -> deliver(targets.get(i), selected);
+            });
+        }
+    }
+
+    /**
+     * Select entries of batch routed to target.
+     *
+     * @param batch List of Notification
+     * @param index int target index
+     * @return List of Notification, new list
+     */
+    private static List<Notification> select(final List<Notification> batch, final int index) {
+        final List<Notification> selected = new ArrayList<>(batch.size());
+        for (final Notification entry : batch) {
+            if ((entry.getTargets() & (1L << index)) != 0) {
+                selected.add(entry);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Hand delivery to lanes of routed targets without waiting, full lane drops delivery for its target.
+     *
+     * @param routed long bit mask of target indexes
+     * @param tasks  IntFunction delivery task by target index
+     */
+    private void fanout(final long routed, final IntFunction<Runnable> tasks) {
+        for (int i = 0; i < lanes.length; i++) {
+            if ((routed & (1L << i)) == 0) {
+                continue;
+            }
+
+            final Lane lane = lanes[i];
+            final Target target = targets.get(i);
+            final Runnable task = tasks.apply(i);
+            final long queued = System.nanoTime();
+            try {
+                lane.executor.execute(() -> {
+                    // Message waited for slow target too long
+                    if (System.nanoTime() - queued > targetTimeout) {
+                        lane.dropped.incrementAndGet();
+                        metrics.timedOut();
+                        logger.fine(String.format("Message to %s is dropped after %s ms in lane", target.getName(),
+                                TimeUnit.NANOSECONDS.toMillis(targetTimeout)));
+                        return;
+                    }
+                    task.run();
+                });
+            } catch (final RejectedExecutionException e) {
+                lane.dropped.incrementAndGet();
+                metrics.skipped(SkipReason.QUEUE);
+                logger.fine(String.format("Message to %s is dropped: %s", target.getName(),
+                        lane.executor.isShutdown() ? "dispatcher is stopped" : "lane is full"));
+            }
+        }
+    }
+
+    /**
+     * Render and send notification to target, failed delivery is passed to retry scheduler.
+     *
+     * @param target Target
+     * @param entry  Notification
+     */
+    private void deliver(final Target target, final Notification entry) {
+        final byte[] payload;
+        try {
+            payload = target.getSender().render(entry);
+        } catch (final Exception e) {
+            logger.warning(String.format("Could not render message: %s", e.getMessage()));
+            return;
+        }
+        send(target, payload, entry);
+    }
+
+    /**
+     * Pack and send notifications to target, failed deliveries are passed to retry scheduler.
+     *
+     * @param target  Target
+     * @param entries List of Notification
+     */
+    private void deliver(final Target target, final List<Notification> entries) {
+        final List<byte[]> payloads;
+        try {
+            payloads = target.getSender().pack(entries);
+        } catch (final Exception e) {
+            logger.warning(String.format("Could not render messages: %s", e.getMessage()));
+            return;
+        }
+        for (final byte[] payload : payloads) {
+            send(target, payload, entries.get(0));
+        }
+    }
+
+    /**
+     * Send rendered payload to target, failed delivery is passed to retry scheduler.
+     *
+     * @param target  Target
+     * @param payload byte[]
+     * @param entry   Notification, the oldest of payload
+     */
+    private void send(final Target target, final byte[] payload, final Notification entry) {
+        metrics.rendered(payload.length);
+
+        try {
+            final long start = System.nanoTime();
+            target.getSender().deliver(payload);
+            final long end = System.nanoTime();
+            metrics.sent(end - start);
+            metrics.delivered(end - entry.getCreated());
+        } catch (final SendException e) {
+            if (e.isOpen()) {
+                metrics.rejected();
+                logger.fine(String.format("Webhook circuit breaker is open, payload %s", target.reject(payload) ? "diverted" : "dropped"));
+                return;
+            }
+            metrics.failed(e);
+            if (retry.schedule(target, payload, e)) {
+                logger.info(String.format("Scheduled retry of message: %s", e.getMessage()));
+            } else {
+                logger.warning(String.format("Could not send message to webhook: %s", e.getMessage()));
+            }
+        } catch (final RuntimeException e) {
+            logger.warning(String.format("Could not send message to webhook: %s", e.getMessage()));
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Lane.
+     * <p>
+     * Bounded queue and threads of one target.
+     */
+    private static final class Lane {
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * Constructor.
+         *
+         * @param name     String
+         * @param threads  int
+         * @param capacity int
+         */
+        private Lane(final String name, final int threads, final int capacity) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity), new ThreadFactoryBuilder()
+                    .setNameFormat("carrier-lane-" + name + "-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+    }
+}
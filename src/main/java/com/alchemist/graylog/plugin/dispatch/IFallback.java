@@ -0,0 +1,18 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+/**
+ * Interface IFallback.
+ * <p>
+ * Receives rendered payloads which could not be delivered in time.
+ *
+ * @author Alchemist
+ */
+public interface IFallback {
+
+    /**
+     * Take undelivered payload.
+     *
+     * @param payload byte[]
+     */
+    void accept(final byte[] payload);
+}
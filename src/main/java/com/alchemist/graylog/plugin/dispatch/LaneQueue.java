@@ -0,0 +1,261 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.sender.Notification;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class LaneQueue.
+ * <p>
+ * Bounded queue with lane per message level sharing one capacity. The most severe lane is taken first,
+ * order inside lane is kept. Full queue makes room by evicting less severe message, so alert is not lost
+ * behind info flood. When queue occupancy reaches high watermark, messages less severe than shed level are
+ * rejected until occupancy falls to low watermark.
+ *
+ * @author Alchemist
+ */
+final class LaneQueue {
+    private static final int LEVEL_MIN = 0;
+    private static final int LEVEL_MAX = 7;
+
+    private final ArrayDeque<Notification>[] lanes;
+    private final int capacity;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final int shedLevel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int count;
+    private boolean shedding;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity      int
+     * @param highWatermark int messages to start shedding at
+     * @param lowWatermark  int messages to stop shedding at
+     * @param shedLevel     int the least severe level never shed
+     */
+    @SuppressWarnings("unchecked")
+    LaneQueue(final int capacity, final int highWatermark, final int lowWatermark, final int shedLevel) {
+        this.lanes = new ArrayDeque[LEVEL_MAX + 1];
+        for (int level = LEVEL_MIN; level <= LEVEL_MAX; level++) {
+            lanes[level] = new ArrayDeque<>();
+        }
+        this.capacity = capacity;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.shedLevel = shedLevel;
+    }
+
+    /**
+     * Is notification shed by watermarks.
+     *
+     * @param entry Notification
+     * @return boolean
+     */
+    boolean isShed(final Notification entry) {
+        lock.lock();
+        try {
+            if (count >= highWatermark) {
+                shedding = true;
+            } else if (count <= lowWatermark) {
+                shedding = false;
+            }
+            return shedding && getLane(entry) > shedLevel;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Is queue shedding.
+     *
+     * @return boolean
+     */
+    boolean isShedding() {
+        lock.lock();
+        try {
+            return shedding;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put notification without waiting, full queue evicts message of less severe lane.
+     *
+     * @param entry  Notification
+     * @param oldest boolean evict the oldest message of the least severe lane, entry lane included,
+     *               otherwise the newest message of less severe lane
+     * @return Notification evicted message, entry itself if it was not queued, null if nothing was evicted
+     */
+    Notification offer(final Notification entry, final boolean oldest) {
+        lock.lock();
+        try {
+            final int lane = getLane(entry);
+            Notification evicted = null;
+            if (count >= capacity) {
+                evicted = evict(oldest ? lane : lane + 1, oldest);
+                if (evicted == null) {
+                    return entry;
+                }
+                count--;
+            }
+            add(lane, entry);
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put notification, full queue evicts the newest message of less severe lane or waits for free space.
+     *
+     * @param entry Notification
+     * @return Notification evicted message, null if nothing was evicted
+     * @throws InterruptedException Exception
+     */
+    Notification put(final Notification entry) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            final int lane = getLane(entry);
+            Notification evicted = null;
+            while (count >= capacity) {
+                evicted = evict(lane + 1, false);
+                if (evicted != null) {
+                    count--;
+                    break;
+                }
+                notFull.await();
+            }
+            add(lane, entry);
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the most severe notification without waiting.
+     *
+     * @return Notification or null if queue is empty
+     */
+    Notification poll() {
+        lock.lock();
+        try {
+            return count > 0 ? take() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the most severe notification, waiting until timeout.
+     *
+     * @param timeout long
+     * @param unit    TimeUnit
+     * @return Notification or null on timeout
+     * @throws InterruptedException Exception
+     */
+    Notification poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return take();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get size.
+     *
+     * @return int
+     */
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Is queue empty.
+     *
+     * @return boolean
+     */
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Add entry to lane, lock is held.
+     *
+     * @param lane  int
+     * @param entry Notification
+     */
+    private void add(final int lane, final Notification entry) {
+        lanes[lane].addLast(entry);
+        count++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Take entry of the most severe lane, lock is held and queue is not empty.
+     *
+     * @return Notification
+     */
+    private Notification take() {
+        for (final ArrayDeque<Notification> lane : lanes) {
+            final Notification entry = lane.pollFirst();
+            if (entry != null) {
+                count--;
+                notFull.signal();
+                return entry;
+            }
+        }
+        throw new IllegalStateException("Queue count is broken");
+    }
+
+    /**
+     * Remove entry of the least severe not empty lane, lock is held.
+     *
+     * @param from   int the most severe lane to evict from
+     * @param oldest boolean remove the oldest entry of lane, otherwise the newest
+     * @return Notification or null if lanes are empty
+     */
+    private Notification evict(final int from, final boolean oldest) {
+        for (int level = LEVEL_MAX; level >= from; level--) {
+            final Notification entry = oldest ? lanes[level].pollFirst() : lanes[level].pollLast();
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get lane of notification.
+     *
+     * @param entry Notification
+     * @return int
+     */
+    private static int getLane(final Notification entry) {
+        return Math.max(LEVEL_MIN, Math.min(LEVEL_MAX, entry.getLevel()));
+    }
+}
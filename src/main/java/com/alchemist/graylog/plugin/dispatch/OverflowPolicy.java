@@ -0,0 +1,29 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+/**
+ * Enum OverflowPolicy.
+ *
+ * @author Alchemist
+ */
+public enum OverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST,
+    BLOCK;
+
+    /**
+     * Get policy by name.
+     *
+     * @param value String
+     * @return OverflowPolicy
+     */
+    public static OverflowPolicy fromString(final String value) {
+        if (value != null && !value.isEmpty()) {
+            for (final OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+}
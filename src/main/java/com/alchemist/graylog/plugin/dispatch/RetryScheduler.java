@@ -0,0 +1,254 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Class RetryScheduler.
+ * <p>
+ * Retries rendered payloads on its own threads with capped exponential backoff and jitter,
+ * until delivery deadline. Count of payloads waiting for retry is bounded. Retryable payloads which are given up
+ * are passed to fallback of their target. Each attempt is given up at most once: by its own run or by stop,
+ * whichever claims it first.
+ *
+ * @author Alchemist
+ */
+public final class RetryScheduler {
+    private static final Logger logger = Logger.getLogger(RetryScheduler.class.getName());
+
+    private static final long BACKOFF_BASE = 1000; // millis
+    private static final long BACKOFF_MAX = 60000; // millis
+    private static final int THREADS = 2;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final int maxInFlight;
+    private final long deadline;
+    private final long stopTimeout;
+    private final OutputMetrics metrics;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<Attempt> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     *
+     * @param name        String
+     * @param maxInFlight int
+     * @param deadline    int sec since first attempt
+     * @param stopTimeout int millis to wait for running attempts on stop
+     * @param metrics     OutputMetrics
+     */
+    public RetryScheduler(final String name, final int maxInFlight, final int deadline, final int stopTimeout,
+                          final OutputMetrics metrics) {
+        this.maxInFlight = maxInFlight;
+        this.metrics = metrics;
+        this.deadline = TimeUnit.SECONDS.toMillis(deadline);
+        this.stopTimeout = stopTimeout;
+        this.scheduler = new ScheduledThreadPoolExecutor(THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("carrier-retry-" + name + "-%d")
+                .setDaemon(true)
+                .build());
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Schedule retry of failed delivery.
+     *
+     * @param target  Target
+     * @param payload byte[]
+     * @param error   SendException of first attempt
+     * @return boolean false if payload is given up
+     */
+    public boolean schedule(final Target target, final byte[] payload, final SendException error) {
+        if (!error.isRetryable()) {
+            return false;
+        }
+
+        if (deadline <= 0) {
+            giveUp(target, payload);
+            return false;
+        }
+
+        // Reserve in flight slot
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                logger.warning(String.format("Retry limit %s reached, payload is given up", maxInFlight));
+                giveUp(target, payload);
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        final Attempt attempt = new Attempt(target, payload, System.currentTimeMillis() + deadline);
+        pending.add(attempt);
+        return retry(attempt, error);
+    }
+
+    /**
+     * Get count of payloads waiting for retry.
+     *
+     * @return int
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stop scheduler, running attempts are waited for until stop timeout, waiting payloads are given up.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(stopTimeout, TimeUnit.MILLISECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        int givenUp = 0;
+        for (final Attempt attempt : pending) {
+            if (done(attempt)) {
+                giveUp(attempt.target, attempt.payload);
+                givenUp++;
+            }
+        }
+        if (givenUp > 0) {
+            logger.warning(String.format("Retry scheduler stopped, given up payloads: %s", givenUp));
+        }
+    }
+
+    /**
+     * Schedule next attempt or give up.
+     *
+     * @param attempt Attempt
+     * @param error   SendException
+     * @return boolean false if payload is given up
+     */
+    private boolean retry(final Attempt attempt, final SendException error) {
+        final long delay = Math.max(backoff(attempt.number), error.getRetryAfter());
+        if (!error.isRetryable() || System.currentTimeMillis() + delay > attempt.deadline) {
+            if (done(attempt) && error.isRetryable()) {
+                giveUp(attempt.target, attempt.payload);
+            }
+            return false;
+        }
+
+        attempt.number++;
+        metrics.retried();
+        try {
+            scheduler.schedule(() -> run(attempt), delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            // Scheduler is stopped, attempt may be given up by stop already
+            if (done(attempt)) {
+                giveUp(attempt.target, attempt.payload);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Run attempt.
+     *
+     * @param attempt Attempt
+     */
+    private void run(final Attempt attempt) {
+        try {
+            final long start = System.nanoTime();
+            attempt.target.getSender().deliver(attempt.payload);
+            metrics.sent(System.nanoTime() - start);
+            done(attempt);
+        } catch (final SendException e) {
+            // Open breaker is retried after its open time like any other failure until deadline
+            if (e.isOpen()) {
+                metrics.rejected();
+            } else {
+                metrics.failed(e);
+            }
+            if (!retry(attempt, e)) {
+                logger.warning(String.format("Could not send message to webhook after %s attempts: %s", attempt.number + 1, e.getMessage()));
+            }
+        } catch (final RuntimeException e) {
+            done(attempt);
+            logger.warning(String.format("Could not send message to webhook: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Claim attempt and release its slot.
+     *
+     * @param attempt Attempt
+     * @return boolean true if attempt was claimed by this call, false if it is done already
+     */
+    private boolean done(final Attempt attempt) {
+        if (pending.remove(attempt)) {
+            inFlight.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pass payload to fallback of target.
+     *
+     * @param target  Target
+     * @param payload byte[]
+     */
+    private void giveUp(final Target target, final byte[] payload) {
+        metrics.givenUp();
+        if (target.getFallback() != null) {
+            target.getFallback().accept(payload);
+        }
+    }
+
+    /**
+     * Get backoff delay with equal jitter.
+     *
+     * @param number int attempt number
+     * @return long millis
+     */
+    static long backoff(final int number) {
+        final long delay = Math.min(BACKOFF_MAX, BACKOFF_BASE << Math.min(number, 16));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Attempt.
+     *
+     * @author Alchemist
+     */
+    private static final class Attempt {
+        private final Target target;
+        private final byte[] payload;
+        private final long deadline;
+        private int number;
+
+        /**
+         * Constructor.
+         *
+         * @param target   Target
+         * @param payload  byte[]
+         * @param deadline long millis
+         */
+        private Attempt(final Target target, final byte[] payload, final long deadline) {
+            this.target = target;
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+    }
+}
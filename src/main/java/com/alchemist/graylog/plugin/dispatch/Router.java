@@ -0,0 +1,192 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.filter.FieldMatcher;
+import org.graylog2.plugin.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class Router.
+ * <p>
+ * Routes compiled into dispatch table indexed by message level, each route is optional field rule and bit mask
+ * of target indexes. First matched route of message level wins, message without matched route is dropped.
+ *
+ * @author Alchemist
+ */
+public final class Router {
+    public static final String ROUTE_LEVELS = "levels";
+    public static final String ROUTE_TARGETS = "targets";
+    public static final String ROUTE_FIELD = "field";
+    public static final String ROUTE_MATCH = "match";
+
+    private static final int LEVEL_MIN = 0;
+    private static final int LEVEL_MAX = 7;
+    private static final int TARGETS_MAX = Long.SIZE;
+
+    private final Route[][] table;
+
+    /**
+     * Constructor.
+     *
+     * @param table Route[][] routes by level
+     */
+    private Router(final Route[][] table) {
+        this.table = table;
+    }
+
+    /**
+     * Compile routes.
+     *
+     * @param routes List of route maps: levels "0-2" or "4", targets "name,name", optional field and match rule
+     * @param names  List of target names, index in list is index of target
+     * @return Router
+     * @throws IllegalArgumentException on wrong route
+     */
+    public static Router compile(final List<Map<String, String>> routes, final List<String> names) throws IllegalArgumentException {
+        if (names.size() > TARGETS_MAX) {
+            throw new IllegalArgumentException(String.format("Targets limit is %s", TARGETS_MAX));
+        }
+
+        final List<List<Route>> byLevel = new ArrayList<>();
+        for (int level = LEVEL_MIN; level <= LEVEL_MAX; level++) {
+            byLevel.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < routes.size(); i++) {
+            final Map<String, String> route = routes.get(i);
+            if (route == null) {
+                throw new IllegalArgumentException(String.format("Route %s is empty", i + 1));
+            }
+            final int[] levels = getLevels(route.get(ROUTE_LEVELS), i);
+            final long targets = getTargets(route.get(ROUTE_TARGETS), names, i);
+
+            final String field = route.get(ROUTE_FIELD);
+            final String match = route.get(ROUTE_MATCH);
+            if ((field == null) != (match == null)) {
+                throw new IllegalArgumentException(String.format("Route %s must have both field and match or none", i + 1));
+            }
+            final Route compiled = new Route(field != null ? field.trim() : null,
+                    match != null ? new FieldMatcher(Collections.singletonList(match)) : null, targets);
+
+            for (int level = levels[0]; level <= levels[1]; level++) {
+                byLevel.get(level).add(compiled);
+            }
+        }
+
+        final Route[][] table = new Route[byLevel.size()][];
+        for (int level = LEVEL_MIN; level <= LEVEL_MAX; level++) {
+            table[level] = byLevel.get(level).toArray(new Route[0]);
+        }
+        return new Router(table);
+    }
+
+    /**
+     * Route message.
+     *
+     * @param message Message
+     * @param level   int parsed message level
+     * @return long bit mask of target indexes, 0 to drop
+     */
+    public long route(final Message message, final int level) {
+        for (final Route route : table[Math.max(LEVEL_MIN, Math.min(LEVEL_MAX, level))]) {
+            if (route.matches(message)) {
+                return route.targets;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parse levels "a-b" or "a".
+     *
+     * @param value String
+     * @param index int route index
+     * @return int[] from and to levels
+     */
+    private static int[] getLevels(final String value, final int index) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Route %s levels are mandatory", index + 1));
+        }
+
+        final int dash = value.indexOf('-');
+        final int from;
+        final int to;
+        try {
+            from = Integer.parseInt((dash < 0 ? value : value.substring(0, dash)).trim());
+            to = dash < 0 ? from : Integer.parseInt(value.substring(dash + 1).trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Route %s levels \"%s\" are wrong", index + 1, value));
+        }
+        if (from < LEVEL_MIN || to > LEVEL_MAX || from > to) {
+            throw new IllegalArgumentException(String.format("Route %s levels \"%s\" are out of range %s-%s",
+                    index + 1, value, LEVEL_MIN, LEVEL_MAX));
+        }
+        return new int[]{from, to};
+    }
+
+    /**
+     * Parse target names "name,name" to bit mask.
+     *
+     * @param value String
+     * @param names List of target names
+     * @param index int route index
+     * @return long
+     */
+    private static long getTargets(final String value, final List<String> names, final int index) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Route %s targets are mandatory", index + 1));
+        }
+
+        long targets = 0;
+        for (final String name : value.split(",")) {
+            final int target = names.indexOf(name.trim());
+            if (target < 0) {
+                throw new IllegalArgumentException(String.format("Route %s target \"%s\" is unknown", index + 1, name.trim()));
+            }
+            targets |= 1L << target;
+        }
+        return targets;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Route.
+     */
+    private static final class Route {
+        private final String field;
+        private final FieldMatcher matcher;
+        private final long targets;
+
+        /**
+         * Constructor.
+         *
+         * @param field   String, may be null
+         * @param matcher FieldMatcher, may be null
+         * @param targets long
+         */
+        private Route(final String field, final FieldMatcher matcher, final long targets) {
+            this.field = field;
+            this.matcher = matcher;
+            this.targets = targets;
+        }
+
+        /**
+         * Is message matched.
+         *
+         * @param message Message
+         * @return boolean
+         */
+        private boolean matches(final Message message) {
+            if (matcher == null) {
+                return true;
+            }
+            final Object value = message.getField(field);
+            return value != null && matcher.match(value.toString()) != null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.sender.ISender;
+
+/**
+ * Class Target.
+ * <p>
+ * One destination of output: sender and fallback for its undelivered payloads. Payloads rejected by open circuit
+ * breaker are dropped unless diverted to fallback.
+ *
+ * @author Alchemist
+ */
+public final class Target {
+    private final String name;
+    private final ISender sender;
+    private final IFallback fallback;
+    private final boolean divert;
+
+    /**
+     * Constructor.
+     *
+     * @param name     String
+     * @param sender   ISender
+     * @param fallback IFallback, may be null
+     */
+    public Target(final String name, final ISender sender, final IFallback fallback) {
+        this(name, sender, fallback, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name     String
+     * @param sender   ISender
+     * @param fallback IFallback, may be null
+     * @param divert   boolean pass payloads rejected by open breaker to fallback
+     */
+    public Target(final String name, final ISender sender, final IFallback fallback, final boolean divert) {
+        this.name = name;
+        this.sender = sender;
+        this.fallback = fallback;
+        this.divert = divert;
+    }
+
+    /**
+     * Get name.
+     *
+     * @return String
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get sender.
+     *
+     * @return ISender
+     */
+    public ISender getSender() {
+        return sender;
+    }
+
+    /**
+     * Get fallback.
+     *
+     * @return IFallback or null
+     */
+    public IFallback getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Handle payload rejected by open circuit breaker.
+     *
+     * @param payload byte[]
+     * @return boolean true if payload is diverted to fallback, false if dropped
+     */
+    public boolean reject(final byte[] payload) {
+        if (!divert || fallback == null) {
+            return false;
+        }
+        fallback.accept(payload);
+        return true;
+    }
+}
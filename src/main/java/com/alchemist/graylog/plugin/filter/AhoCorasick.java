@@ -0,0 +1,153 @@
+package com.alchemist.graylog.plugin.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Class AhoCorasick.
+ * <p>
+ * Case-insensitive multi-pattern substring matcher. Built once, immutable and thread-safe after construction.
+ * Text is scanned in a single pass without allocations.
+ *
+ * @author Alchemist
+ */
+final class AhoCorasick {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[] output;
+    private final String[] patterns;
+
+    /**
+     * Constructor.
+     *
+     * @param patterns List
+     */
+    AhoCorasick(final List<String> patterns) {
+        this.patterns = patterns.toArray(new String[0]);
+
+        // Build trie
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(NONE);
+
+        for (int i = 0; i < this.patterns.length; i++) {
+            final String pattern = this.patterns[i];
+            int state = ROOT;
+            for (int j = 0; j < pattern.length(); j++) {
+                final char c = fold(pattern.charAt(j));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    outputs.add(NONE);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (outputs.get(state) == NONE) {
+                outputs.set(state, i);
+            }
+        }
+
+        // Pack transitions into sorted arrays
+        final int size = trie.size();
+        this.keys = new char[size][];
+        this.targets = new int[size][];
+        this.output = new int[size];
+        for (int state = 0; state < size; state++) {
+            final TreeMap<Character, Integer> edges = trie.get(state);
+            keys[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int k = 0;
+            for (final Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                keys[state][k] = edge.getKey();
+                targets[state][k] = edge.getValue();
+                k++;
+            }
+            output[state] = outputs.get(state);
+        }
+
+        // Build failure links breadth-first, inherit outputs of suffix states
+        this.fail = new int[size];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (final int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            for (int k = 0; k < keys[state].length; k++) {
+                final char c = keys[state][k];
+                final int child = targets[state][k];
+
+                int f = fail[state];
+                while (f != ROOT && next(f, c) == NONE) {
+                    f = fail[f];
+                }
+                final int target = next(f, c);
+                fail[child] = target != NONE ? target : ROOT;
+
+                if (output[child] == NONE) {
+                    output[child] = output[fail[child]];
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Find first pattern contained in text.
+     *
+     * @param text String
+     * @return String matched pattern or null
+     */
+    String find(final String text) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = fold(text.charAt(i));
+            int target = next(state, c);
+            while (target == NONE && state != ROOT) {
+                state = fail[state];
+                target = next(state, c);
+            }
+            state = target != NONE ? target : ROOT;
+            if (output[state] != NONE) {
+                return patterns[output[state]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get transition.
+     *
+     * @param state int
+     * @param c     char
+     * @return int
+     */
+    private int next(final int state, final char c) {
+        final int index = Arrays.binarySearch(keys[state], c);
+        return index >= 0 ? targets[state][index] : NONE;
+    }
+
+    /**
+     * Fold char case.
+     *
+     * @param c char
+     * @return char
+     */
+    static char fold(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,146 @@
+package com.alchemist.graylog.plugin.filter;
+
+import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.graylog2.plugin.Message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class DuplicateFilter.
+ * <p>
+ * Remembers fingerprints of sent messages for TTL. Fingerprint is a 64-bit hash over values of configured fields.
+ * Message text is normalized: case is folded, whitespace runs are collapsed and digit runs are replaced by one mark,
+ * so messages differing only by ids, counters or timestamps are duplicates. Cache size is bounded by entries.
+ *
+ * @author Alchemist
+ */
+public final class DuplicateFilter {
+
+    private static final String MESSAGE = "message";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char DIGITS = '#';
+    private static final char SEPARATOR = '\u0000';
+
+    private final String[] fields;
+    private final Cache<Long, Boolean> cache;
+
+    /**
+     * Constructor.
+     *
+     * @param fields     List
+     * @param ttl        int sec
+     * @param maxEntries int
+     */
+    public DuplicateFilter(final List<String> fields, final int ttl, final int maxEntries) {
+        this.fields = fields.toArray(new String[0]);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Check message was sent in TTL.
+     *
+     * @param message Message
+     * @return boolean
+     */
+    public boolean isDuplicate(final Message message) {
+        return cache.getIfPresent(fingerprint(message)) != null;
+    }
+
+    /**
+     * Reserve fingerprint atomically, the first of concurrent equal messages wins.
+     *
+     * @param fingerprint long
+     * @return boolean false if fingerprint is reserved or sent in TTL
+     */
+    public boolean reserve(final long fingerprint) {
+        return cache.asMap().putIfAbsent(fingerprint, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Release reservation of message which is not sent, so its repeat is not a duplicate.
+     *
+     * @param fingerprint long
+     */
+    public void release(final long fingerprint) {
+        cache.invalidate(fingerprint);
+    }
+
+    /**
+     * Get remembered fingerprints count.
+     *
+     * @return long
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Calculate message fingerprint.
+     *
+     * @param message Message
+     * @return long
+     */
+    public long fingerprint(final Message message) {
+        long hash = FNV_OFFSET;
+        for (final String field : fields) {
+            final String value = MessageHelper.getStringValue(message, field);
+            if (value != null) {
+                hash = MESSAGE.equals(field) ? hash(hash, value) : hashExact(hash, value);
+            }
+            hash = (hash ^ SEPARATOR) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hash value as is (FNV-1a).
+     *
+     * @param seed  long
+     * @param value String
+     * @return long
+     */
+    static long hashExact(final long seed, final String value) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hash normalized value (FNV-1a).
+     *
+     * @param seed  long
+     * @param value String
+     * @return long
+     */
+    static long hash(final long seed, final String value) {
+        long hash = seed;
+        char previous = ' ';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isDigit(c)) {
+                c = DIGITS;
+            } else if (Character.isWhitespace(c)) {
+                c = ' ';
+            } else {
+                c = AhoCorasick.fold(c);
+            }
+
+            if ((c == DIGITS || c == ' ') && c == previous) {
+                continue;
+            }
+            previous = c;
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,128 @@
+package com.alchemist.graylog.plugin.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Class FieldMatcher.
+ * <p>
+ * Compiled ignore rules of one message field. Rules are case-insensitive and trimmed:
+ * <ul>
+ * <li>{@code text} - value contains text</li>
+ * <li>{@code eq:text} - value equals text</li>
+ * <li>{@code re:regex} - value matches regex (find)</li>
+ * </ul>
+ *
+ * @author Alchemist
+ */
+public final class FieldMatcher {
+    public static final String EXACT_PREFIX = "eq:";
+    public static final String REGEX_PREFIX = "re:";
+
+    private final String matchAll;
+    private final AhoCorasick contains;
+    private final String[][] exact;
+    private final Pattern[] regex;
+
+    /**
+     * Constructor.
+     *
+     * @param rules List
+     * @throws java.util.regex.PatternSyntaxException Exception
+     */
+    public FieldMatcher(final List<String> rules) {
+        final List<String> containsRules = new ArrayList<>();
+        final List<String> exactRules = new ArrayList<>();
+        final List<Pattern> regexRules = new ArrayList<>();
+        String all = null;
+        int maxLength = 0;
+
+        for (final String raw : rules) {
+            if (raw == null) {
+                continue;
+            }
+            final String rule = raw.trim();
+            if (rule.startsWith(REGEX_PREFIX)) {
+                regexRules.add(Pattern.compile(rule.substring(REGEX_PREFIX.length()).trim(),
+                        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            } else if (rule.startsWith(EXACT_PREFIX)) {
+                final String value = rule.substring(EXACT_PREFIX.length()).trim();
+                exactRules.add(value);
+                maxLength = Math.max(maxLength, value.length());
+            } else if (rule.isEmpty()) {
+                // Empty rule is contained in any value
+                all = rule;
+            } else {
+                containsRules.add(rule);
+            }
+        }
+
+        this.matchAll = all;
+        this.contains = containsRules.isEmpty() ? null : new AhoCorasick(containsRules);
+        this.regex = regexRules.toArray(new Pattern[0]);
+
+        // Exact rules grouped by length, so only same length rules are compared
+        final List<List<String>> byLength = new ArrayList<>();
+        for (int i = 0; i <= maxLength; i++) {
+            byLength.add(new ArrayList<>());
+        }
+        for (final String rule : exactRules) {
+            byLength.get(rule.length()).add(rule);
+        }
+        this.exact = new String[maxLength + 1][];
+        for (int i = 0; i <= maxLength; i++) {
+            exact[i] = byLength.get(i).toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Find rule matched by value.
+     *
+     * @param value String
+     * @return String rule or null
+     */
+    public String match(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        if (matchAll != null) {
+            return matchAll;
+        }
+
+        if (contains != null) {
+            final String rule = contains.find(value);
+            if (rule != null) {
+                return rule;
+            }
+        }
+
+        if (exact.length > 1 || exact[0].length > 0) {
+            int start = 0;
+            int end = value.length();
+            while (start < end && value.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && value.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            final int length = end - start;
+            if (length < exact.length) {
+                for (final String rule : exact[length]) {
+                    if (value.regionMatches(true, start, rule, 0, length)) {
+                        return EXACT_PREFIX + rule;
+                    }
+                }
+            }
+        }
+
+        for (final Pattern pattern : regex) {
+            if (pattern.matcher(value).find()) {
+                return REGEX_PREFIX + pattern.pattern();
+            }
+        }
+
+        return null;
+    }
+}
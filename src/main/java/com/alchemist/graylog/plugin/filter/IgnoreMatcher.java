@@ -0,0 +1,127 @@
+package com.alchemist.graylog.plugin.filter;
+
+import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import org.graylog2.plugin.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class IgnoreMatcher.
+ * <p>
+ * Ignored fields rules compiled once per output, shared by output threads without locking.
+ *
+ * @author Alchemist
+ */
+public final class IgnoreMatcher {
+
+    private final String[] fields;
+    private final FieldMatcher[] matchers;
+
+    /**
+     * Constructor.
+     *
+     * @param rules Map field to rules, may be null
+     * @throws java.util.regex.PatternSyntaxException Exception
+     */
+    public IgnoreMatcher(final Map<String, List<String>> rules) {
+        final List<String> fieldList = new ArrayList<>();
+        final List<FieldMatcher> matcherList = new ArrayList<>();
+
+        if (rules != null) {
+            for (final Map.Entry<String, List<String>> entry : rules.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    fieldList.add(entry.getKey());
+                    matcherList.add(new FieldMatcher(entry.getValue()));
+                }
+            }
+        }
+
+        this.fields = fieldList.toArray(new String[0]);
+        this.matchers = matcherList.toArray(new FieldMatcher[0]);
+    }
+
+    /**
+     * Is there no rules.
+     *
+     * @return boolean
+     */
+    public boolean isEmpty() {
+        return fields.length == 0;
+    }
+
+    /**
+     * Find rule which ignores message.
+     *
+     * @param message Message
+     * @return Match or null
+     */
+    public Match match(final Message message) {
+        for (int i = 0; i < fields.length; i++) {
+            final String value = MessageHelper.getStringValue(message, fields[i]);
+            if (value != null) {
+                final String rule = matchers[i].match(value);
+                if (rule != null) {
+                    return new Match(fields[i], rule, value);
+                }
+            }
+        }
+        return null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Match.
+     *
+     * @author Alchemist
+     */
+    public static final class Match {
+
+        private final String field;
+        private final String rule;
+        private final String value;
+
+        /**
+         * Constructor.
+         *
+         * @param field String
+         * @param rule  String
+         * @param value String
+         */
+        Match(final String field, final String rule, final String value) {
+            this.field = field;
+            this.rule = rule;
+            this.value = value;
+        }
+
+        /**
+         * Get field.
+         *
+         * @return String
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Get rule.
+         *
+         * @return String
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        /**
+         * Get value.
+         *
+         * @return String
+         */
+        public String getValue() {
+            return value;
+        }
+    }
+}
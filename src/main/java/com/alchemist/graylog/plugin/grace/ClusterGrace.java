@@ -0,0 +1,107 @@
+package com.alchemist.graylog.plugin.grace;
+
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Class ClusterGrace.
+ * <p>
+ * Grace window shared by all Graylog nodes, per stream or per key built from message fields. Windows are taken
+ * in the cluster store, known open windows are cached locally so messages inside them do not reach the store.
+ * When the store fails the node falls back to its own windows.
+ *
+ * @author Alchemist
+ */
+public final class ClusterGrace implements IGrace {
+    public static final String TAG = ClusterGrace.class.getSimpleName();
+
+    private static final Logger logger = Logger.getLogger(ClusterGrace.class.getName());
+    private static final String SEPARATOR = ":";
+    private static final long SWEEP_INTERVAL = 10000; // millis
+
+    private final IGraceStore store;
+    private final String prefix;
+    private final String[] fields;
+    private final int wait;
+    private final int maxKeys;
+    private final Map<String, Long> open = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param store   IGraceStore
+     * @param stream  Stream
+     * @param fields  List, empty for one window per stream
+     * @param wait    int
+     * @param maxKeys int locally cached windows limit
+     */
+    public ClusterGrace(final IGraceStore store, final Stream stream, final List<String> fields, final int wait,
+                        final int maxKeys) {
+        this.store = store;
+        this.prefix = stream.getId() + SEPARATOR;
+        this.fields = fields.toArray(new String[0]);
+        this.wait = wait * 1000; // sec to millis
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Check lock.
+     *
+     * @param message Message
+     * @return boolean
+     * @throws RuntimeException Exception
+     */
+    public boolean isPass(final Message message) throws RuntimeException {
+        final long now = System.currentTimeMillis();
+        sweep(now);
+
+        final String key = fields.length > 0 ? prefix + KeyedGrace.getKey(fields, message) : prefix;
+        final Long end = open.get(key);
+        if (end != null && now <= end) {
+            return false;
+        }
+
+        long taken;
+        try {
+            taken = store.acquire(key, now, wait);
+        } catch (final RuntimeException e) {
+            logger.warning(String.format("Could not take grace window in cluster store, node window is used: %s", e.getMessage()));
+            taken = 0;
+        }
+
+        if (open.size() < maxKeys || open.containsKey(key)) {
+            open.put(key, taken == 0 ? now + wait : taken);
+        }
+        return taken == 0;
+    }
+
+    /**
+     * Get locally cached windows count.
+     *
+     * @return int
+     */
+    public int size() {
+        return open.size();
+    }
+
+    /**
+     * Evict closed windows, runs by one caller per interval.
+     *
+     * @param now long
+     */
+    private void sweep(final long now) {
+        final long scheduled = nextSweep.get();
+        if (now < scheduled || !nextSweep.compareAndSet(scheduled, now + SWEEP_INTERVAL)) {
+            return;
+        }
+
+        open.values().removeIf(end -> end < now);
+    }
+}
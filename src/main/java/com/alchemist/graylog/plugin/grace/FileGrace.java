@@ -1,6 +1,7 @@
 package com.alchemist.graylog.plugin.grace;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 
 import java.io.File;
@@ -35,10 +36,11 @@ public final class FileGrace implements IGrace {
     /**
      * Check lock.
      *
+     * @param message Message
      * @return boolean
      * @throws RuntimeException Exception
      */
-    public boolean isPass() throws RuntimeException {
+    public boolean isPass(final Message message) throws RuntimeException {
         final File file = new File(filepath);
 
         if (file.isDirectory()) {
@@ -22,10 +22,12 @@ public final class GraceFactory {
      * @param type          String
      * @param stream        Stream
      * @param configuration Configuration
+     * @param store         IGraceStore shared by cluster
      * @return IGrace
      * @throws Exception Exception
      */
-    public static IGrace getGrace(final String type, final Stream stream, final Configuration configuration) throws Exception {
+    public static IGrace getGrace(final String type, final Stream stream, final Configuration configuration,
+                                  final IGraceStore store) throws Exception {
         if (type == null || type.isEmpty()) {
             throw new Exception("Grace type is wrong");
         }
@@ -34,6 +36,22 @@ public final class GraceFactory {
             return new FileGrace(stream, GraylogOutputCarrierConfig.getGrace(configuration));
         }
 
+        if (type.equalsIgnoreCase(MemoryGrace.TAG)) {
+            return new MemoryGrace(GraylogOutputCarrierConfig.getGrace(configuration));
+        }
+
+        if (type.equalsIgnoreCase(KeyedGrace.TAG)) {
+            return new KeyedGrace(GraylogOutputCarrierConfig.getGraceKeyFields(configuration),
+                    GraylogOutputCarrierConfig.getGrace(configuration),
+                    GraylogOutputCarrierConfig.getGraceMaxKeys(configuration));
+        }
+
+        if (type.equalsIgnoreCase(ClusterGrace.TAG)) {
+            return new ClusterGrace(store, stream, GraylogOutputCarrierConfig.getGraceKeyFields(configuration),
+                    GraylogOutputCarrierConfig.getGrace(configuration),
+                    GraylogOutputCarrierConfig.getGraceMaxKeys(configuration));
+        }
+
         throw new Exception("Unsupported Grace type");
     }
 
@@ -42,11 +60,12 @@ public final class GraceFactory {
      *
      * @param stream        Stream
      * @param configuration Configuration
+     * @param store         IGraceStore shared by cluster
      * @return IGrace
      * @throws Exception Exception
      */
-    public static IGrace getGrace(final Stream stream, final Configuration configuration) throws Exception {
-        return getGrace(FileGrace.TAG, stream, configuration);
+    public static IGrace getGrace(final Stream stream, final Configuration configuration, final IGraceStore store) throws Exception {
+        return getGrace(GraylogOutputCarrierConfig.getGraceType(configuration), stream, configuration, store);
     }
 
 }
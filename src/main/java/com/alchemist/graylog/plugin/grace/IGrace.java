@@ -1,5 +1,7 @@
 package com.alchemist.graylog.plugin.grace;
 
+import org.graylog2.plugin.Message;
+
 /**
  * Interface IGrace.
  *
@@ -10,8 +12,9 @@ public interface IGrace {
     /**
      * Check lock.
      *
+     * @param message Message
      * @return boolean
      * @throws RuntimeException Exception
      */
-    boolean isPass() throws RuntimeException;
+    boolean isPass(final Message message) throws RuntimeException;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.alchemist.graylog.plugin.grace;
+
+/**
+ * Interface IGraceStore.
+ * <p>
+ * Shared grace windows, taken atomically by one of the nodes.
+ *
+ * @author Alchemist
+ */
+public interface IGraceStore {
+
+    /**
+     * Take grace window of key if the previous one is closed.
+     *
+     * @param key  String
+     * @param now  long millis
+     * @param wait long millis
+     * @return long 0 if window is taken, otherwise end of the open window in millis
+     * @throws RuntimeException Exception
+     */
+    long acquire(final String key, final long now, final long wait) throws RuntimeException;
+}
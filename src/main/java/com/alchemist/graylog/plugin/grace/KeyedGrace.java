@@ -0,0 +1,145 @@
+package com.alchemist.graylog.plugin.grace;
+
+import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import org.graylog2.plugin.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class KeyedGrace.
+ * <p>
+ * Grace window per key built from message fields, e.g. source or app and env. Keys are kept in memory,
+ * idle keys are evicted and keys over the limit share one overflow window.
+ *
+ * @author Alchemist
+ */
+public final class KeyedGrace implements IGrace {
+    public static final String TAG = KeyedGrace.class.getSimpleName();
+
+    private static final String SEPARATOR = "|";
+    private static final String OVERFLOW = "\u0000overflow";
+    private static final long SWEEP_INTERVAL = 10000; // millis
+
+    private final String[] fields;
+    private final int wait;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> windows = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param fields  List
+     * @param wait    int
+     * @param maxKeys int
+     */
+    public KeyedGrace(final List<String> fields, final int wait, final int maxKeys) {
+        this.fields = fields.toArray(new String[0]);
+        this.wait = wait * 1000; // sec to millis
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Check lock.
+     *
+     * @param message Message
+     * @return boolean
+     * @throws RuntimeException Exception
+     */
+    public boolean isPass(final Message message) throws RuntimeException {
+        final long now = System.currentTimeMillis();
+        sweep(now);
+
+        final AtomicLong last = window(getKey(message));
+        final long previous = last.get();
+
+        if ((previous + wait) >= now) {
+            return false;
+        }
+
+        // Concurrent callers saw the same previous value, only one of them updates it
+        return last.compareAndSet(previous, now);
+    }
+
+    /**
+     * Get tracked keys count.
+     *
+     * @return int
+     */
+    public int size() {
+        return windows.size();
+    }
+
+    /**
+     * Get window of key.
+     *
+     * @param key String
+     * @return AtomicLong
+     */
+    private AtomicLong window(final String key) {
+        final AtomicLong last = windows.get(key);
+        if (last != null) {
+            return last;
+        }
+        if (windows.size() >= maxKeys) {
+            return windows.computeIfAbsent(OVERFLOW, k -> new AtomicLong());
+        }
+        return windows.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    /**
+     * Build key from message fields.
+     *
+     * @param message Message
+     * @return String
+     */
+    String getKey(final Message message) {
+        return getKey(fields, message);
+    }
+
+    /**
+     * Build key from message fields.
+     *
+     * @param fields  String[]
+     * @param message Message
+     * @return String
+     */
+    static String getKey(final String[] fields, final Message message) {
+        if (fields.length == 1) {
+            final String value = MessageHelper.getStringValue(message, fields[0]);
+            return value != null ? value : "";
+        }
+
+        final StringBuilder key = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                key.append(SEPARATOR);
+            }
+            final String value = MessageHelper.getStringValue(message, fields[i]);
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Evict idle keys, runs by one caller per interval.
+     *
+     * @param now long
+     */
+    private void sweep(final long now) {
+        final long scheduled = nextSweep.get();
+        if (now < scheduled || !nextSweep.compareAndSet(scheduled, now + SWEEP_INTERVAL)) {
+            return;
+        }
+
+        for (final String key : windows.keySet()) {
+            // Closed window, next message of key passes anyway
+            windows.computeIfPresent(key, (k, last) -> (last.get() + wait) < now ? null : last);
+        }
+    }
+}
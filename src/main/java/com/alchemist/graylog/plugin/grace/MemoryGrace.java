@@ -0,0 +1,47 @@
+package com.alchemist.graylog.plugin.grace;
+
+import org.graylog2.plugin.Message;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class MemoryGrace.
+ * <p>
+ * Keeps last pass time in memory, only one caller wins per grace window.
+ *
+ * @author Alchemist
+ */
+public final class MemoryGrace implements IGrace {
+    public static final String TAG = MemoryGrace.class.getSimpleName();
+
+    private final AtomicLong last = new AtomicLong();
+    private final int wait;
+
+    /**
+     * Constructor.
+     *
+     * @param wait int
+     */
+    public MemoryGrace(final int wait) {
+        this.wait = wait * 1000; // sec to millis
+    }
+
+    /**
+     * Check lock.
+     *
+     * @param message Message
+     * @return boolean
+     * @throws RuntimeException Exception
+     */
+    public boolean isPass(final Message message) throws RuntimeException {
+        final long now = System.currentTimeMillis();
+        final long previous = last.get();
+
+        if ((previous + wait) >= now) {
+            return false;
+        }
+
+        // Concurrent callers saw the same previous value, only one of them updates it
+        return last.compareAndSet(previous, now);
+    }
+}
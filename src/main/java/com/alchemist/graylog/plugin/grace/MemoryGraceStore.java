@@ -0,0 +1,36 @@
+package com.alchemist.graylog.plugin.grace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class MemoryGraceStore.
+ * <p>
+ * Grace windows of one node in memory, stand-in for cluster store in tests and benchmarks.
+ *
+ * @author Alchemist
+ */
+public final class MemoryGraceStore implements IGraceStore {
+    private final Map<String, Long> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Take grace window of key if the previous one is closed.
+     *
+     * @param key  String
+     * @param now  long millis
+     * @param wait long millis
+     * @return long 0 if window is taken, otherwise end of the open window in millis
+     */
+    @Override
+    public long acquire(final String key, final long now, final long wait) {
+        final long[] end = new long[1];
+        windows.compute(key, (k, last) -> {
+            if (last != null && last + wait >= now) {
+                end[0] = last + wait;
+                return last;
+            }
+            return now;
+        });
+        return end[0];
+    }
+}
@@ -0,0 +1,99 @@
+package com.alchemist.graylog.plugin.grace;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.graylog2.database.MongoConnection;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class MongoGraceStore.
+ * <p>
+ * Grace windows shared by Graylog nodes in MongoDB, one document per key. Window is taken by find-and-modify
+ * matching only closed window, upsert of the same key by another node fails on duplicate id. Documents are removed
+ * by TTL index after window end.
+ *
+ * @author Alchemist
+ */
+@Singleton
+public final class MongoGraceStore implements IGraceStore {
+    private static final String COLLECTION = "output_carrier_grace";
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_LAST = "last";
+    private static final String FIELD_EXPIRE = "expire";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoConnection connection;
+
+    private volatile MongoCollection<Document> collection;
+
+    /**
+     * Constructor.
+     *
+     * @param connection MongoConnection
+     */
+    @Inject
+    public MongoGraceStore(final MongoConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Take grace window of key if the previous one is closed.
+     *
+     * @param key  String
+     * @param now  long millis
+     * @param wait long millis
+     * @return long 0 if window is taken, otherwise end of the open window in millis
+     * @throws RuntimeException Exception
+     */
+    @Override
+    public long acquire(final String key, final long now, final long wait) throws RuntimeException {
+        final MongoCollection<Document> windows = getCollection();
+        try {
+            windows.findOneAndUpdate(
+                    Filters.and(Filters.eq(FIELD_ID, key), Filters.lt(FIELD_LAST, now - wait)),
+                    Updates.combine(Updates.set(FIELD_LAST, now), Updates.set(FIELD_EXPIRE, new Date(now + wait))),
+                    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+            return 0;
+        } catch (final MongoException e) {
+            if (e.getCode() != DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+
+        // Window is open, taken by this or another node
+        final Document window = windows.find(Filters.eq(FIELD_ID, key)).first();
+        final Object last = window != null ? window.get(FIELD_LAST) : null;
+        return last instanceof Number ? ((Number) last).longValue() + wait : now + wait;
+    }
+
+    /**
+     * Get collection, TTL index is ensured on first use.
+     *
+     * @return MongoCollection
+     */
+    private MongoCollection<Document> getCollection() {
+        MongoCollection<Document> windows = collection;
+        if (windows == null) {
+            synchronized (this) {
+                windows = collection;
+                if (windows == null) {
+                    windows = connection.getMongoDatabase().getCollection(COLLECTION);
+                    windows.createIndex(Indexes.ascending(FIELD_EXPIRE), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+                    collection = windows;
+                }
+            }
+        }
+        return windows;
+    }
+}
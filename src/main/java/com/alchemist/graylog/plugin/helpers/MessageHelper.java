@@ -3,7 +3,7 @@ package com.alchemist.graylog.plugin.helpers;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 
-import java.util.logging.Logger;
+import java.util.Set;
 
 /**
  * Class MessageHelper.
@@ -11,11 +11,22 @@ import java.util.logging.Logger;
  * @author Alchemist
  */
 public final class MessageHelper {
-    private static final Logger logger = Logger.getLogger(MessageHelper.class.getName());
-
     public static final String URL_TPL = "%sstreams/%s/search?relative=0&q=_id:%s";
     public static final int DEFAULT_LEVEL = 7;
 
+    private static final String LEVEL_FIELD = "level";
+    private static final int LEVEL_MIN = 0;
+    private static final int LEVEL_MAX = 7;
+    private static final String FACILITY_FIELD = "facility";
+
+    // Syslog level names and common logger aliases, matched ignoring case
+    private static final String[] LEVEL_NAMES = {
+            "emerg", "emergency", "panic", "alert", "crit", "critical", "fatal", "err", "error",
+            "warn", "warning", "notice", "info", "informational", "debug", "trace"};
+    private static final int[] LEVEL_VALUES = {
+            0, 0, 0, 1, 2, 2, 2, 3, 3,
+            4, 4, 5, 6, 6, 7, 7};
+
     /**
      * Constructor.
      */
@@ -36,16 +47,45 @@ public final class MessageHelper {
     }
 
     /**
-     * Get message level.
+     * Append direct URL to message, same as {@link #getURL(String, Stream, Message)}.
+     *
+     * @param buf     StringBuilder
+     * @param root    String
+     * @param stream  Stream
+     * @param message Message
+     * @return StringBuilder
+     */
+    public static StringBuilder appendURL(final StringBuilder buf, final String root, final Stream stream,
+                                          final Message message) {
+        final String id = getFirstStreamId(message);
+        return buf.append(root)
+                .append("streams/").append(id != null ? id : stream.getId())
+                .append("/search?relative=0&q=_id:").append(message.getId());
+    }
+
+    /**
+     * Get message level, missing or unknown level is default level.
      *
      * @param message Message
      * @return int
      */
     public static int getLevel(final Message message) {
-        try {
-            return ParseHelper.toInt(message.getField("level").toString());
-        } catch (final Exception e) {
-            logger.warning(String.format("Message level is incorrect: %s", e.getMessage()));
+        return message != null ? toLevel(message.getField(LEVEL_FIELD)) : DEFAULT_LEVEL;
+    }
+
+    /**
+     * Convert level field value: number, numeric string or syslog level name. Value out of syslog range is unknown.
+     *
+     * @param value Object
+     * @return int
+     */
+    public static int toLevel(final Object value) {
+        if (value instanceof Number) {
+            final double level = ((Number) value).doubleValue();
+            return level >= LEVEL_MIN && level <= LEVEL_MAX ? (int) level : DEFAULT_LEVEL;
+        }
+        if (value instanceof CharSequence) {
+            return toLevel(value.toString());
         }
         return DEFAULT_LEVEL;
     }
@@ -57,12 +97,7 @@ public final class MessageHelper {
      * @return String
      */
     public static String getFacility(final Message message) {
-        try {
-            return message.getField("facility").toString();
-        } catch (final Exception e) {
-            logger.warning(String.format("Message facility is incorrect: %s", e.getMessage()));
-        }
-        return null;
+        return getStringValue(message, FACILITY_FIELD);
     }
 
     /**
@@ -73,16 +108,56 @@ public final class MessageHelper {
      * @return String
      */
     public static String getStringValue(final Message message, final String field) {
-        try {
-            if (message != null && field != null && !field.isEmpty()) {
-                if (message.hasField(field)) {
-                    return message.getField(field).toString();
-                }
+        if (message == null || field == null || field.isEmpty()) {
+            return null;
+        }
+        final Object value = message.getField(field);
+        if (value == null) {
+            return null;
+        }
+        return value instanceof String ? (String) value : value.toString();
+    }
+
+    /**
+     * Parse level string without exceptions.
+     *
+     * @param value String
+     * @return int
+     */
+    private static int toLevel(final String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return DEFAULT_LEVEL;
+        }
+
+        // Numeric level
+        if (end - start <= 9) {
+            int level = 0;
+            int i = start;
+            while (i < end && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                level = level * 10 + (value.charAt(i) - '0');
+                i++;
+            }
+            if (i == end) {
+                return level <= LEVEL_MAX ? level : DEFAULT_LEVEL;
             }
-        } catch (final Exception e) {
-            logger.warning(String.format("Message field %s cannot be cast to String", e.getMessage()));
         }
-        return null;
+
+        // Level name
+        final int length = end - start;
+        for (int i = 0; i < LEVEL_NAMES.length; i++) {
+            if (LEVEL_NAMES[i].length() == length && value.regionMatches(true, start, LEVEL_NAMES[i], 0, length)) {
+                return LEVEL_VALUES[i];
+            }
+        }
+        return DEFAULT_LEVEL;
     }
 
     /**
@@ -92,13 +167,13 @@ public final class MessageHelper {
      * @return String
      */
     public static String getFirstStreamId(final Message message) {
-        try {
-            if (message != null) {
-                return message.getStreams().iterator().next().getId();
-            }
-        } catch (final Exception e) {
-            logger.warning(String.format("Receiving message streams is failed: %s", e.getMessage()));
+        if (message == null) {
+            return null;
+        }
+        final Set<Stream> streams = message.getStreams();
+        if (streams == null || streams.isEmpty()) {
+            return null;
         }
-        return null;
+        return streams.iterator().next().getId();
     }
 }
@@ -81,4 +81,20 @@ public final class ParseHelper {
             return null;
         }
     }
+
+    /**
+     * Parse JSON to List of Maps.
+     *
+     * @param json String
+     * @return List
+     */
+    public static List<Map<String, String>> toListMap(final String json) {
+        final ObjectMapper mapper = new ObjectMapper();
+        try {
+            return mapper.readValue(json, new TypeReference<List<Map<String, String>>>() {
+            });
+        } catch (final Exception e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,284 @@
+package com.alchemist.graylog.plugin.helpers;
+
+/**
+ * Class StackTraceHelper.
+ * <p>
+ * Summarizes Java style stack trace: exception headers are kept with top frames of each of them, the rest of frames
+ * is counted, repeated "Caused by" headers are collapsed. Input is read line by line and only up to scan budget
+ * derived from output limit, so cost does not depend on size of huge trace.
+ *
+ * @author Alchemist
+ */
+public final class StackTraceHelper {
+    private static final String CAUSED_BY = "Caused by:";
+    private static final String SUPPRESSED = "Suppressed:";
+    private static final String FRAME = "at ";
+    private static final String MORE = "... ";
+    private static final String MORE_END = " more";
+    private static final String ELLIPSIS = "...";
+    private static final int SCAN_FACTOR = 64; // input chars scanned per output char
+
+    /**
+     * Constructor.
+     */
+    private StackTraceHelper() {
+    }
+
+    /**
+     * Append stack trace summary.
+     *
+     * @param buf    StringBuilder
+     * @param text   CharSequence
+     * @param frames int top frames kept per exception
+     * @param limit  int output chars, longer summary is cut at limit + 1 to let caller see it was cut
+     * @return StringBuilder
+     */
+    public static StringBuilder appendSummary(final StringBuilder buf, final CharSequence text, final int frames,
+                                              final int limit) {
+        final int budget = (int) Math.min(text.length(), (long) limit * SCAN_FACTOR);
+
+        final Summary summary = new Summary(buf, frames, limit + 1);
+        int pos = 0;
+        while (pos < budget && !summary.isFull()) {
+            int end = pos;
+            while (end < budget && text.charAt(end) != '\n') {
+                end++;
+            }
+            summary.line(text, pos, trimCr(text, pos, end));
+            pos = end + 1;
+        }
+        summary.finish();
+
+        // Rest of huge trace is not scanned
+        if (pos < text.length() && !summary.isFull()) {
+            summary.append(ELLIPSIS);
+        }
+        return buf;
+    }
+
+    /**
+     * Get line end without trailing carriage return.
+     *
+     * @param text  CharSequence
+     * @param start int
+     * @param end   int
+     * @return int
+     */
+    private static int trimCr(final CharSequence text, final int start, final int end) {
+        return end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Is region started by prefix.
+     *
+     * @param text   CharSequence
+     * @param start  int
+     * @param end    int
+     * @param prefix String
+     * @return boolean
+     */
+    private static boolean startsWith(final CharSequence text, final int start, final int end, final String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is region equal to previous header.
+     *
+     * @param text   CharSequence
+     * @param start  int
+     * @param end    int
+     * @param header CharSequence, may be null
+     * @return boolean
+     */
+    private static boolean isSame(final CharSequence text, final int start, final int end, final CharSequence header) {
+        if (header == null || header.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < header.length(); i++) {
+            if (text.charAt(start + i) != header.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Summary.
+     * <p>
+     * State of summary being written.
+     */
+    private static final class Summary {
+        private final StringBuilder buf;
+        private final int frames;
+        private final int offset;
+        private final int bound;
+        private final StringBuilder cause = new StringBuilder();
+
+        private boolean hasCause;
+        private int kept;
+        private long skipped;
+        private int repeated;
+
+        /**
+         * Constructor.
+         *
+         * @param buf    StringBuilder
+         * @param frames int
+         * @param limit  int
+         */
+        private Summary(final StringBuilder buf, final int frames, final int limit) {
+            this.buf = buf;
+            this.frames = frames;
+            this.offset = buf.length();
+            this.bound = offset + limit;
+        }
+
+        /**
+         * Is output limit reached.
+         *
+         * @return boolean
+         */
+        private boolean isFull() {
+            return buf.length() >= bound;
+        }
+
+        /**
+         * Handle line.
+         *
+         * @param text  CharSequence
+         * @param start int
+         * @param end   int
+         */
+        private void line(final CharSequence text, final int start, final int end) {
+            int indent = start;
+            while (indent < end && (text.charAt(indent) == ' ' || text.charAt(indent) == '\t')) {
+                indent++;
+            }
+
+            // Frame of current exception, frames of collapsed cause are not counted
+            if (indent > start && startsWith(text, indent, end, FRAME)) {
+                if (repeated > 0) {
+                    return;
+                }
+                if (kept < frames) {
+                    kept++;
+                    append(text, start, end);
+                } else {
+                    skipped++;
+                }
+                return;
+            }
+
+            // "... N more" frames common with enclosing trace
+            if (indent > start && startsWith(text, indent, end, MORE) && end - indent > MORE.length() + MORE_END.length()
+                    && startsWith(text, end - MORE_END.length(), end, MORE_END)) {
+                if (repeated == 0) {
+                    skipped += parseCount(text, indent + MORE.length(), end - MORE_END.length());
+                }
+                return;
+            }
+
+            // Header, continuation of exception message or other text
+            final boolean causedBy = startsWith(text, indent, end, CAUSED_BY);
+            if (causedBy && hasCause && isSame(text, start, end, cause)) {
+                flushSkipped();
+                repeated++;
+                return;
+            }
+            if (causedBy || indent == start || startsWith(text, indent, end, SUPPRESSED)) {
+                flushSkipped();
+                flushRepeated();
+                kept = 0;
+            }
+            if (causedBy) {
+                hasCause = true;
+                cause.setLength(0);
+                cause.append(text, start, end);
+            }
+            append(text, start, end);
+        }
+
+        /**
+         * Write counters left.
+         */
+        private void finish() {
+            flushSkipped();
+            flushRepeated();
+            if (buf.length() > offset && buf.charAt(buf.length() - 1) == '\n') {
+                buf.setLength(buf.length() - 1);
+            }
+        }
+
+        /**
+         * Append line, cut by output limit.
+         *
+         * @param text  CharSequence
+         * @param from  int
+         * @param to    int
+         */
+        private void append(final CharSequence text, final int from, final int to) {
+            buf.append(text, from, Math.min(to, from + Math.max(0, bound - buf.length())));
+            append("\n");
+        }
+
+        /**
+         * Append text, cut by output limit.
+         *
+         * @param text String
+         */
+        private void append(final String text) {
+            buf.append(text, 0, Math.min(text.length(), Math.max(0, bound - buf.length())));
+        }
+
+        /**
+         * Write count of skipped frames.
+         */
+        private void flushSkipped() {
+            if (skipped > 0) {
+                append("\t... " + skipped + " more\n");
+                skipped = 0;
+            }
+        }
+
+        /**
+         * Write count of collapsed repeated causes.
+         */
+        private void flushRepeated() {
+            if (repeated > 0) {
+                append("\t... cause repeated " + repeated + " times\n");
+                repeated = 0;
+            }
+        }
+
+        /**
+         * Parse frames count of "... N more".
+         *
+         * @param text  CharSequence
+         * @param start int
+         * @param end   int
+         * @return long, 0 if not a number
+         */
+        private static long parseCount(final CharSequence text, final int start, final int end) {
+            long count = 0;
+            for (int i = start; i < end; i++) {
+                final char c = text.charAt(i);
+                if (c < '0' || c > '9' || count > Integer.MAX_VALUE) {
+                    return 0;
+                }
+                count = count * 10 + (c - '0');
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.alchemist.graylog.plugin.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Class Journal.
+ * <p>
+ * Append-only journal of undelivered payloads, split into segment files. Every record is
+ * {@code [length:int][timestamp:long][crc32:int][payload]} and is forced to disk on append.
+ * Read position is kept in checkpoint file, consumed, oversized and expired segments are deleted,
+ * record older than max age is skipped on read. Torn or corrupted record ends reading of its segment.
+ *
+ * @author Alchemist
+ */
+public final class Journal implements Closeable {
+    private static final Logger logger = Logger.getLogger(Journal.class.getName());
+
+    private static final String SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String SEGMENT_TPL = "%020d" + SUFFIX;
+    private static final int HEADER = 4 + 8 + 4;
+    private static final long SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final int RECORD_MAX = 16 * 1024 * 1024;
+
+    private final Path dir;
+    private final long maxSize;
+    private final long maxAge;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private FileChannel active;
+    private long activeId;
+    private long readId;
+    private long readPosition;
+    private long size;
+
+    /**
+     * Constructor.
+     *
+     * @param dir     Path
+     * @param maxSize long bytes
+     * @param maxAge  long millis
+     * @throws IOException Exception
+     */
+    public Journal(final Path dir, final long maxSize, final long maxAge) throws IOException {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+
+        Files.createDirectories(dir);
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (final NumberFormatException e) {
+                    logger.warning(String.format("Skip unknown journal file: %s", file));
+                }
+            }
+        }
+
+        for (final Path segment : segments.values()) {
+            size += Files.size(segment);
+        }
+
+        loadCheckpoint();
+
+        // Never append after possibly torn tail of previous run
+        roll(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        if (!segments.containsKey(readId)) {
+            readId = segments.firstKey();
+            readPosition = 0;
+        }
+    }
+
+    /**
+     * Append payload.
+     *
+     * @param payload byte[]
+     * @throws IOException Exception
+     */
+    public synchronized void append(final byte[] payload) throws IOException {
+        if (payload.length > RECORD_MAX) {
+            throw new IOException(String.format("Journal record is too big: %s", payload.length));
+        }
+
+        final long timestamp = System.currentTimeMillis();
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER + payload.length);
+        buffer.putInt(payload.length).putLong(timestamp).putInt(checksum(timestamp, payload)).put(payload);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        active.force(false);
+        size += HEADER + payload.length;
+
+        if (active.size() >= SEGMENT_SIZE) {
+            roll(activeId + 1);
+        }
+        cleanup();
+    }
+
+    /**
+     * Read next record from checkpoint, expired records are skipped and committed.
+     *
+     * @return Record or null if journal is consumed
+     * @throws IOException Exception
+     */
+    public synchronized Record next() throws IOException {
+        final long expired = System.currentTimeMillis() - maxAge;
+        int skipped = 0;
+        try {
+            while (true) {
+                final Path segment = segments.get(readId);
+                final long length = Files.size(segment);
+                final Record record = readId != activeId || readPosition < length ? read(segment, length) : null;
+                if (record != null && record.timestamp < expired) {
+                    readPosition = record.next;
+                    skipped++;
+                    continue;
+                }
+                if (record != null) {
+                    return record;
+                }
+
+                if (readId == activeId) {
+                    return null;
+                }
+
+                // Segment is consumed
+                final Long nextId = segments.higherKey(readId);
+                delete(readId);
+                readId = nextId;
+                readPosition = 0;
+                saveCheckpoint();
+            }
+        } finally {
+            if (skipped > 0) {
+                saveCheckpoint();
+                logger.warning(String.format("Journal records are dropped due to age limit: %s", skipped));
+            }
+        }
+    }
+
+    /**
+     * Move checkpoint after record.
+     *
+     * @param record Record
+     * @throws IOException Exception
+     */
+    public synchronized void commit(final Record record) throws IOException {
+        if (record.segment == readId && record.position == readPosition) {
+            readPosition = record.next;
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Get journal size on disk.
+     *
+     * @return long bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Delete expired segments and oldest segments over size limit. Active segment is rolled first
+     * when it has to be deleted.
+     *
+     * @throws IOException Exception
+     */
+    public synchronized void cleanup() throws IOException {
+        final long expired = System.currentTimeMillis() - maxAge;
+
+        while (!segments.isEmpty()) {
+            final Map.Entry<Long, Path> oldest = segments.firstEntry();
+            final boolean consumed = oldest.getKey() < readId;
+            if (!consumed && size <= maxSize && Files.getLastModifiedTime(oldest.getValue()).toMillis() >= expired) {
+                break;
+            }
+
+            if (oldest.getKey() == activeId) {
+                roll(activeId + 1);
+            }
+            if (!consumed) {
+                logger.warning(String.format("Journal segment %s is dropped due to size or age limit", oldest.getValue()));
+            }
+            delete(oldest.getKey());
+
+            if (oldest.getKey() == readId) {
+                readId = segments.firstKey();
+                readPosition = 0;
+                saveCheckpoint();
+            }
+        }
+    }
+
+    /**
+     * Close journal.
+     *
+     * @throws IOException Exception
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        active.close();
+    }
+
+    /**
+     * Read record at checkpoint.
+     *
+     * @param segment Path
+     * @param size    long
+     * @return Record or null at the end of segment
+     * @throws IOException Exception
+     */
+    private Record read(final Path segment, final long size) throws IOException {
+        if (readPosition + HEADER > size) {
+            return null;
+        }
+
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(channel, header, readPosition);
+            header.flip();
+            final int length = header.getInt();
+            final long timestamp = header.getLong();
+            final int crc = header.getInt();
+
+            if (length < 0 || length > RECORD_MAX || readPosition + HEADER + length > size) {
+                return corrupted(segment, size);
+            }
+
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, readPosition + HEADER);
+            if (checksum(timestamp, payload.array()) != crc) {
+                return corrupted(segment, size);
+            }
+
+            return new Record(readId, readPosition, readPosition + HEADER + length, timestamp, payload.array());
+        }
+    }
+
+    /**
+     * Skip rest of corrupted segment.
+     *
+     * @param segment Path
+     * @param size    long
+     * @return Record null
+     */
+    private Record corrupted(final Path segment, final long size) {
+        logger.warning(String.format("Journal segment %s is corrupted at %s, rest is skipped", segment, readPosition));
+        readPosition = size;
+        return null;
+    }
+
+    /**
+     * Start new active segment.
+     *
+     * @param id long
+     * @throws IOException Exception
+     */
+    private void roll(final long id) throws IOException {
+        if (active != null) {
+            active.close();
+        }
+        final Path segment = dir.resolve(String.format(SEGMENT_TPL, id));
+        active = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeId = id;
+        segments.put(id, segment);
+    }
+
+    /**
+     * Delete segment.
+     *
+     * @param id long
+     * @throws IOException Exception
+     */
+    private void delete(final long id) throws IOException {
+        final Path segment = segments.remove(id);
+        if (segment != null) {
+            if (Files.exists(segment)) {
+                size -= Files.size(segment);
+                Files.delete(segment);
+            }
+        }
+    }
+
+    /**
+     * Load checkpoint.
+     */
+    private void loadCheckpoint() {
+        final Path checkpoint = dir.resolve(CHECKPOINT);
+        try {
+            if (Files.exists(checkpoint)) {
+                final String[] value = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim().split(":");
+                readId = Long.parseLong(value[0]);
+                readPosition = Long.parseLong(value[1]);
+                return;
+            }
+        } catch (final Exception e) {
+            logger.warning(String.format("Journal checkpoint is wrong, journal is read from start: %s", e.getMessage()));
+        }
+        readId = segments.isEmpty() ? 0 : segments.firstKey();
+        readPosition = 0;
+    }
+
+    /**
+     * Save checkpoint atomically.
+     *
+     * @throws IOException Exception
+     */
+    private void saveCheckpoint() throws IOException {
+        final Path checkpoint = dir.resolve(CHECKPOINT);
+        final Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        Files.write(tmp, String.format("%s:%s", readId, readPosition).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read buffer fully.
+     *
+     * @param channel  FileChannel
+     * @param buffer   ByteBuffer
+     * @param position long
+     * @throws IOException Exception
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Get record checksum.
+     *
+     * @param timestamp long
+     * @param payload   byte[]
+     * @return int
+     */
+    private static int checksum(final long timestamp, final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(timestamp).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Record.
+     *
+     * @author Alchemist
+     */
+    public static final class Record {
+        private final long segment;
+        private final long position;
+        private final long next;
+        private final long timestamp;
+        private final byte[] payload;
+
+        /**
+         * Constructor.
+         *
+         * @param segment   long
+         * @param position  long
+         * @param next      long
+         * @param timestamp long
+         * @param payload   byte[]
+         */
+        private Record(final long segment, final long position, final long next, final long timestamp, final byte[] payload) {
+            this.segment = segment;
+            this.position = position;
+            this.next = next;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+
+        /**
+         * Get append time.
+         *
+         * @return long millis
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Get payload.
+         *
+         * @return byte[]
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
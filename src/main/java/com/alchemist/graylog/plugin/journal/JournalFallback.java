@@ -0,0 +1,99 @@
+package com.alchemist.graylog.plugin.journal;
+
+import com.alchemist.graylog.plugin.dispatch.IFallback;
+import com.alchemist.graylog.plugin.sender.ISender;
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Class JournalFallback.
+ * <p>
+ * Writes undelivered payloads to journal and periodically replays them in order until endpoint fails again.
+ *
+ * @author Alchemist
+ */
+public final class JournalFallback implements IFallback {
+    private static final Logger logger = Logger.getLogger(JournalFallback.class.getName());
+
+    private static final long REPLAY_INTERVAL = 10; // sec
+
+    private final Journal journal;
+    private final ISender sender;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param name    String
+     * @param journal Journal
+     * @param sender  ISender
+     */
+    public JournalFallback(final String name, final Journal journal, final ISender sender) {
+        this.journal = journal;
+        this.sender = sender;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("carrier-journal-" + name + "-%d")
+                .setDaemon(true)
+                .build());
+        this.scheduler.scheduleWithFixedDelay(this::replay, REPLAY_INTERVAL, REPLAY_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Take undelivered payload.
+     *
+     * @param payload byte[]
+     */
+    @Override
+    public void accept(final byte[] payload) {
+        try {
+            journal.append(payload);
+            logger.info("Undelivered message is written to journal");
+        } catch (final IOException e) {
+            logger.warning(String.format("Could not write message to journal: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Replay journal in order, stop on first retryable failure. Expired records are dropped, not replayed.
+     */
+    public void replay() {
+        try {
+            journal.cleanup();
+            Journal.Record record;
+            while (!Thread.currentThread().isInterrupted() && (record = journal.next()) != null) {
+                try {
+                    sender.deliver(record.getPayload());
+                } catch (final SendException e) {
+                    if (e.isRetryable()) {
+                        return;
+                    }
+                    logger.warning(String.format("Journal message is dropped: %s", e.getMessage()));
+                }
+                journal.commit(record);
+            }
+        } catch (final IOException | RuntimeException e) {
+            logger.warning(String.format("Could not replay journal: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stop replay and close journal.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(REPLAY_INTERVAL, TimeUnit.SECONDS);
+            journal.close();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            logger.warning(String.format("Could not close journal: %s", e.getMessage()));
+        }
+    }
+}
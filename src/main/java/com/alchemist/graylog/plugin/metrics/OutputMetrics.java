@@ -0,0 +1,186 @@
+package com.alchemist.graylog.plugin.metrics;
+
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class OutputMetrics.
+ * <p>
+ * Meters, timers and histograms of one output registered in Graylog metric registry under
+ * {@code <output class>.<stream id>.<output id>.*}, removed when output stops.
+ *
+ * @author Alchemist
+ */
+public final class OutputMetrics {
+    private final MetricRegistry registry;
+    private final String prefix;
+
+    private final Meter received;
+    private final Map<SkipReason, Meter> skipped = new EnumMap<>(SkipReason.class);
+    private final Meter rendered;
+    private final Meter sent;
+    private final Meter failed4xx;
+    private final Meter failed5xx;
+    private final Meter failedIo;
+    private final Meter timedOut;
+    private final Meter rejected;
+    private final Meter retried;
+    private final Meter givenUp;
+    private final Timer latency;
+    private final Timer request;
+    private final Histogram payloadSize;
+
+    /**
+     * Constructor.
+     *
+     * @param registry MetricRegistry
+     * @param prefix   String metric name prefix
+     */
+    public OutputMetrics(final MetricRegistry registry, final String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+
+        this.received = registry.meter(name("received"));
+        for (final SkipReason reason : SkipReason.values()) {
+            skipped.put(reason, registry.meter(name("skipped", reason.getTag())));
+        }
+        this.rendered = registry.meter(name("rendered"));
+        this.sent = registry.meter(name("sent"));
+        this.failed4xx = registry.meter(name("failed", "4xx"));
+        this.failed5xx = registry.meter(name("failed", "5xx"));
+        this.failedIo = registry.meter(name("failed", "io"));
+        this.timedOut = registry.meter(name("failed", "timeout"));
+        this.rejected = registry.meter(name("failed", "open"));
+        this.retried = registry.meter(name("retried"));
+        this.givenUp = registry.meter(name("given-up"));
+        this.latency = registry.timer(name("latency"));
+        this.request = registry.timer(name("request"));
+        this.payloadSize = registry.histogram(name("payload-size"));
+    }
+
+    /**
+     * Register gauge, replacing gauge of previous output instance.
+     *
+     * @param name  String
+     * @param gauge Gauge
+     */
+    public void gauge(final String name, final Gauge<?> gauge) {
+        final String full = name(name);
+        registry.remove(full);
+        registry.register(full, gauge);
+    }
+
+    /**
+     * Message received by output.
+     */
+    public void received() {
+        received.mark();
+    }
+
+    /**
+     * Message skipped or dropped.
+     *
+     * @param reason SkipReason
+     */
+    public void skipped(final SkipReason reason) {
+        skipped.get(reason).mark();
+    }
+
+    /**
+     * Payload rendered.
+     *
+     * @param size int bytes
+     */
+    public void rendered(final int size) {
+        rendered.mark();
+        payloadSize.update(size);
+    }
+
+    /**
+     * Payload sent.
+     *
+     * @param requestNanos long duration of successful request
+     */
+    public void sent(final long requestNanos) {
+        sent.mark();
+        request.update(requestNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Message delivered, since it was queued.
+     *
+     * @param latencyNanos long
+     */
+    public void delivered(final long latencyNanos) {
+        latency.update(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Send failed, counted by HTTP status class.
+     *
+     * @param error SendException
+     */
+    public void failed(final SendException error) {
+        final int status = error.getStatus();
+        if (status >= 500) {
+            failed5xx.mark();
+        } else if (status >= 400) {
+            failed4xx.mark();
+        } else {
+            failedIo.mark();
+        }
+    }
+
+    /**
+     * Target did not finish in target timeout.
+     */
+    public void timedOut() {
+        timedOut.mark();
+    }
+
+    /**
+     * Request not sent, circuit breaker of endpoint is open.
+     */
+    public void rejected() {
+        rejected.mark();
+    }
+
+    /**
+     * Retry attempt scheduled.
+     */
+    public void retried() {
+        retried.mark();
+    }
+
+    /**
+     * Retry given up.
+     */
+    public void givenUp() {
+        givenUp.mark();
+    }
+
+    /**
+     * Remove all metrics of output.
+     */
+    public void stop() {
+        registry.removeMatching((name, metric) -> name.startsWith(prefix + "."));
+    }
+
+    /**
+     * Build full metric name.
+     *
+     * @param names String[]
+     * @return String
+     */
+    private String name(final String... names) {
+        return MetricRegistry.name(prefix, names);
+    }
+}
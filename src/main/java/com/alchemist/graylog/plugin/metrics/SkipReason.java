@@ -0,0 +1,38 @@
+package com.alchemist.graylog.plugin.metrics;
+
+/**
+ * Enum SkipReason.
+ * <p>
+ * Why message was not sent.
+ *
+ * @author Alchemist
+ */
+public enum SkipReason {
+    LEVEL("level"),
+    IGNORE("ignore"),
+    DUPLICATE("duplicate"),
+    ROUTE("route"),
+    GRACE("grace"),
+    QUEUE("queue"),
+    SHED("shed");
+
+    private final String tag;
+
+    /**
+     * Constructor.
+     *
+     * @param tag String
+     */
+    SkipReason(final String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Get short name used in metric names.
+     *
+     * @return String
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -1,13 +1,35 @@
 package com.alchemist.graylog.plugin.output;
 
 import com.alchemist.graylog.plugin.GraylogOutputCarrierConfig;
+import com.alchemist.graylog.plugin.audit.AuditRecord;
+import com.alchemist.graylog.plugin.audit.AuditRing;
+import com.alchemist.graylog.plugin.audit.SampledLogger;
+import com.alchemist.graylog.plugin.digest.Digest;
+import com.alchemist.graylog.plugin.dispatch.Dispatcher;
+import com.alchemist.graylog.plugin.dispatch.RetryScheduler;
+import com.alchemist.graylog.plugin.dispatch.Router;
+import com.alchemist.graylog.plugin.dispatch.Target;
+import com.alchemist.graylog.plugin.filter.DuplicateFilter;
+import com.alchemist.graylog.plugin.filter.IgnoreMatcher;
 import com.alchemist.graylog.plugin.grace.GraceFactory;
 import com.alchemist.graylog.plugin.grace.IGrace;
+import com.alchemist.graylog.plugin.grace.IGraceStore;
 import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import com.alchemist.graylog.plugin.journal.Journal;
+import com.alchemist.graylog.plugin.journal.JournalFallback;
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.metrics.SkipReason;
 import com.alchemist.graylog.plugin.sender.ISender;
+import com.alchemist.graylog.plugin.sender.Notification;
 import com.alchemist.graylog.plugin.sender.SenderFactory;
+import com.alchemist.graylog.plugin.transport.CircuitBreaker;
+import com.alchemist.graylog.plugin.transport.EndpointHealth;
+import com.alchemist.graylog.plugin.transport.EndpointRegistry;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationException;
@@ -18,8 +40,13 @@ import org.graylog2.plugin.outputs.MessageOutput;
 import org.graylog2.plugin.outputs.MessageOutputConfigurationException;
 import org.graylog2.plugin.streams.Stream;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -30,13 +57,26 @@ import java.util.logging.Logger;
 public final class GraylogOutputCarrierMessageOutput implements MessageOutput {
     private static final Logger logger = Logger.getLogger(GraylogOutputCarrierMessageOutput.class.getSimpleName());
 
+    private static final int SKIP_LOG_LIMIT = 10; // lines per interval
+    private static final int SKIP_LOG_INTERVAL = 60; // sec
+    private static final int DETAIL_VALUE_LIMIT = 64;
+
     private final Stream stream;
 
     private final int edgeLevel;
-    private Map<String, List<String>> ignoredFields;
+    private final IgnoreMatcher ignoredFields;
+    private final DuplicateFilter duplicates;
+    private final Router router;
 
     private final IGrace grace;
-    private final ISender sender;
+    private final List<JournalFallback> journals = new ArrayList<>();
+    private final List<ISender> senders = new ArrayList<>();
+    private final RetryScheduler retry;
+    private final Dispatcher dispatcher;
+    private final Digest digest;
+    private final OutputMetrics metrics;
+    private final AuditRing audit;
+    private final SampledLogger skipLogger;
 
     private boolean running;
 
@@ -45,11 +85,19 @@ public final class GraylogOutputCarrierMessageOutput implements MessageOutput {
      *
      * @param stream        Stream
      * @param configuration Configuration
+     * @param registry      MetricRegistry
+     * @param audit         AuditRing
+     * @param endpoints     EndpointRegistry
+     * @param graceStore    IGraceStore
      * @throws MessageOutputConfigurationException Exception
      */
     @Inject
-    public GraylogOutputCarrierMessageOutput(final @Assisted Stream stream, final @Assisted Configuration configuration) throws MessageOutputConfigurationException {
+    public GraylogOutputCarrierMessageOutput(final @Assisted Stream stream, final @Assisted Configuration configuration,
+                                             final MetricRegistry registry, final AuditRing audit,
+                                             final EndpointRegistry endpoints, final IGraceStore graceStore) throws MessageOutputConfigurationException {
         this.stream = stream;
+        this.audit = audit;
+        this.skipLogger = new SampledLogger(logger, "skipped message", SKIP_LOG_LIMIT, SKIP_LOG_INTERVAL);
 
         try {
             GraylogOutputCarrierConfig.checkConfiguration(configuration);
@@ -57,15 +105,68 @@ public final class GraylogOutputCarrierMessageOutput implements MessageOutput {
             throw new MessageOutputConfigurationException(String.format("Missing configuration: %s", e.getMessage()));
         }
 
-        this.edgeLevel = GraylogOutputCarrierConfig.getLevel(configuration);
-        this.ignoredFields = GraylogOutputCarrierConfig.getIgnoredFields(configuration);
-
+        // Everything created is released if output fails to start
+        final String outputId = getOutputId(stream, configuration);
+        final List<Target> targets = new ArrayList<>();
+        final List<String> names = GraylogOutputCarrierConfig.getTargetNames(configuration);
+        OutputMetrics metrics = null;
+        RetryScheduler retry = null;
+        Dispatcher dispatcher = null;
+        Digest digest = null;
         try {
-            this.sender = SenderFactory.getSender(stream, configuration);
-            this.grace = GraceFactory.getGrace(stream, configuration);
+            metrics = new OutputMetrics(registry,
+                    MetricRegistry.name(GraylogOutputCarrierMessageOutput.class, stream.getId(), outputId));
+
+            this.edgeLevel = GraylogOutputCarrierConfig.getLevel(configuration);
+            this.ignoredFields = GraylogOutputCarrierConfig.getIgnoredFields(configuration);
+
+            final List<String> dedupFields = GraylogOutputCarrierConfig.getDedupFields(configuration);
+            this.duplicates = !dedupFields.isEmpty()
+                    ? new DuplicateFilter(dedupFields, GraylogOutputCarrierConfig.getDedupTtl(configuration),
+                    GraylogOutputCarrierConfig.getDedupMaxEntries(configuration))
+                    : null;
+
+            this.router = GraylogOutputCarrierConfig.getRouter(configuration);
+            this.grace = GraceFactory.getGrace(stream, configuration, graceStore);
+            targets.add(getTarget(configuration, names.get(0), outputId,
+                    SenderFactory.getSender(stream, configuration, endpoints)));
+            for (final Map<String, String> target : GraylogOutputCarrierConfig.getTargets(configuration)) {
+                // Additional targets may share webhook with other channel
+                final String webhookUrl = target.get(GraylogOutputCarrierConfig.TARGET_URL);
+                final String channel = target.get(GraylogOutputCarrierConfig.TARGET_CHANNEL);
+                targets.add(getTarget(configuration, names.get(targets.size()),
+                        getTargetId(stream, webhookUrl + (channel != null ? channel : "")),
+                        SenderFactory.getSender(stream, configuration, endpoints, target)));
+            }
+
+            retry = new RetryScheduler(stream.getId(),
+                    GraylogOutputCarrierConfig.getRetryMaxInFlight(configuration),
+                    GraylogOutputCarrierConfig.getRetryDeadline(configuration),
+                    GraylogOutputCarrierConfig.getReadTimeout(configuration), metrics);
+            dispatcher = new Dispatcher(stream.getId(), targets,
+                    GraylogOutputCarrierConfig.getTargetTimeout(configuration),
+                    GraylogOutputCarrierConfig.getBatchWindow(configuration),
+                    GraylogOutputCarrierConfig.getBatchSize(configuration),
+                    GraylogOutputCarrierConfig.getQueueCapacity(configuration),
+                    GraylogOutputCarrierConfig.getShedHighWatermark(configuration),
+                    GraylogOutputCarrierConfig.getShedLowWatermark(configuration),
+                    GraylogOutputCarrierConfig.getShedLevel(configuration),
+                    GraylogOutputCarrierConfig.getQueueWorkers(configuration),
+                    GraylogOutputCarrierConfig.getQueueOverflow(configuration), retry, metrics);
+            registerGauges(metrics, dispatcher, retry, targets, names);
+
+            digest = GraylogOutputCarrierConfig.isDigest(configuration)
+                    ? new Digest(stream.getId(), GraylogOutputCarrierConfig.getDigestKeyField(configuration),
+                    GraylogOutputCarrierConfig.getGrace(configuration), dispatcher)
+                    : null;
         } catch (final Exception e) {
+            release(digest, dispatcher, retry, metrics);
             throw new MessageOutputConfigurationException(String.format("Error configuration: %s", e.getMessage()));
         }
+        this.metrics = metrics;
+        this.retry = retry;
+        this.dispatcher = dispatcher;
+        this.digest = digest;
 
         this.running = true;
         logger.info("Started");
@@ -79,45 +180,56 @@ public final class GraylogOutputCarrierMessageOutput implements MessageOutput {
      */
     @Override
     public void write(final Message message) throws Exception {
+        metrics.received();
+
         // Check level
         final int messageLevel = MessageHelper.getLevel(message);
         if (edgeLevel < messageLevel) {
-            logger.warning(String.format("Skip message from stream: %s due to level: %s < %s", stream, edgeLevel, messageLevel));
+            metrics.skipped(SkipReason.LEVEL);
+            skip(message, SkipReason.LEVEL, Level.INFO, edgeLevel + " < " + messageLevel);
             return;
         }
 
         // Check ignored fields
-        if (ignoredFields != null && !ignoredFields.isEmpty()) {
-            for (final String field : ignoredFields.keySet()) {
-                if (message.hasField(field)) {
-                    final List<String> rules = ignoredFields.get(field);
-                    if (!rules.isEmpty()) {
-                        final String value = MessageHelper.getStringValue(message, field);
-                        if (value != null) {
-                            for (final String rule : rules) {
-                                if (value.toLowerCase().trim().contains(rule.toLowerCase().trim())) {
-                                    logger.warning(String.format("Skipped message from stream: %s due to field: %s:%s ~ %s:%s", stream, field, rule, field, value));
-                                    return;
-                                }
-                            }
-                        }
-
-                    }
-                }
-            }
+        final IgnoreMatcher.Match match = ignoredFields.match(message);
+        if (match != null) {
+            metrics.skipped(SkipReason.IGNORE);
+            skip(message, SkipReason.IGNORE, Level.INFO, match.getField() + ":" + match.getRule() + " ~ " + cut(match.getValue()));
+            return;
+        }
+
+        // Route message, before grace, so message without route does not hold grace period
+        final long routed = router != null ? router.route(message, messageLevel) : Notification.ALL_TARGETS;
+        if (routed == 0) {
+            metrics.skipped(SkipReason.ROUTE);
+            skip(message, SkipReason.ROUTE, Level.INFO, "level " + messageLevel);
+            return;
+        }
+
+        // Check duplicates, fingerprint is reserved at once and released if message is not queued for sending
+        final long fingerprint = duplicates != null ? duplicates.fingerprint(message) : 0;
+        if (duplicates != null && !duplicates.reserve(fingerprint)) {
+            metrics.skipped(SkipReason.DUPLICATE);
+            skip(message, SkipReason.DUPLICATE, Level.INFO, null);
+            return;
         }
 
         // Check grace period
-        if (!grace.isPass()) {
-            logger.info(String.format("Skipped message from stream: %s due to grace period", stream));
+        if (!grace.isPass(message)) {
+            unreserve(fingerprint);
+            metrics.skipped(SkipReason.GRACE);
+            if (digest != null) {
+                digest.add(message, messageLevel);
+            }
+            skip(message, SkipReason.GRACE, Level.INFO, null);
             return;
         }
 
-        // Perform message
-        try {
-            sender.perform(message);
-        } catch (final Exception e) {
-            throw new RuntimeException("Could not send message to webhook:", e);
+        // Enqueue message, workers will send it, dropped message is counted by dispatcher
+        final SkipReason reason = dispatcher.dispatch(new Notification(message, messageLevel, routed));
+        if (reason != null) {
+            unreserve(fingerprint);
+            skip(message, reason, Level.WARNING, reason == SkipReason.SHED ? "level " + messageLevel : null);
         }
     }
 
@@ -150,8 +262,160 @@ public final class GraylogOutputCarrierMessageOutput implements MessageOutput {
      */
     @Override
     public void stop() {
-        logger.info("Stopped");
         this.running = false;
+        release(digest, dispatcher, retry, metrics);
+        logger.info("Stopped");
+    }
+
+    /**
+     * Release everything created by output, in order of message flow.
+     *
+     * @param digest     Digest, may be null
+     * @param dispatcher Dispatcher, may be null
+     * @param retry      RetryScheduler, may be null
+     * @param metrics    OutputMetrics, may be null
+     */
+    private void release(final Digest digest, final Dispatcher dispatcher, final RetryScheduler retry,
+                         final OutputMetrics metrics) {
+        if (digest != null) {
+            digest.stop();
+        }
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+        if (retry != null) {
+            retry.stop();
+        }
+        journals.forEach(JournalFallback::stop);
+        senders.forEach(ISender::stop);
+        if (metrics != null) {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Register gauges of queue, retry and target endpoints.
+     *
+     * @param metrics    OutputMetrics
+     * @param dispatcher Dispatcher
+     * @param retry      RetryScheduler
+     * @param targets    List of Target
+     * @param names      List of target names
+     */
+    private static void registerGauges(final OutputMetrics metrics, final Dispatcher dispatcher,
+                                       final RetryScheduler retry, final List<Target> targets,
+                                       final List<String> names) {
+        metrics.gauge("queue-size", (Gauge<Integer>) dispatcher::size);
+        metrics.gauge("queue-shedding", (Gauge<Integer>) () -> dispatcher.isShedding() ? 1 : 0);
+        metrics.gauge("retry-in-flight", (Gauge<Integer>) retry::getInFlight);
+        for (int i = 0; i < targets.size(); i++) {
+            final int index = i;
+            if (targets.size() > 1) {
+                metrics.gauge("lane." + names.get(i) + ".size", (Gauge<Integer>) () -> dispatcher.getLaneSize(index));
+                metrics.gauge("lane." + names.get(i) + ".dropped", (Gauge<Long>) () -> dispatcher.getLaneDropped(index));
+            }
+            final CircuitBreaker breaker = targets.get(i).getSender().getEndpoint().getBreaker();
+            metrics.gauge("breaker." + names.get(i), (Gauge<Integer>) () -> breaker.getState().getCode());
+            final EndpointHealth health = targets.get(i).getSender().getEndpoint().getHealth();
+            metrics.gauge("health." + names.get(i) + ".failures", (Gauge<Integer>) health::getFailures);
+            metrics.gauge("health." + names.get(i) + ".last-status", (Gauge<Integer>) health::getLastStatus);
+            metrics.gauge("health." + names.get(i) + ".last-success", (Gauge<Long>) health::getLastSuccess);
+        }
+    }
+
+    /**
+     * Release duplicate reservation of message not queued.
+     *
+     * @param fingerprint long
+     */
+    private void unreserve(final long fingerprint) {
+        if (duplicates != null) {
+            duplicates.release(fingerprint);
+        }
+    }
+
+    /**
+     * Record skipped message to audit ring and sampled log.
+     *
+     * @param message Message
+     * @param reason  SkipReason
+     * @param level   Level of log line
+     * @param detail  String, may be null
+     */
+    private void skip(final Message message, final SkipReason reason, final Level level, final String detail) {
+        audit.add(new AuditRecord(stream.getId(), message.getId(), reason, detail));
+        skipLogger.log(level, () -> String.format("Skipped message %s from stream %s due to %s%s", message.getId(),
+                stream.getId(), reason.getTag(), detail != null ? ": " + detail : ""));
+    }
+
+    /**
+     * Cut field value for audit detail.
+     *
+     * @param value String
+     * @return String
+     */
+    private static String cut(final String value) {
+        return value != null && value.length() > DETAIL_VALUE_LIMIT ? value.substring(0, DETAIL_VALUE_LIMIT) + "..." : value;
+    }
+
+    /**
+     * Build target, with journal fallback if enabled.
+     *
+     * @param configuration Configuration
+     * @param name          String target name, webhook URL is not used as it holds secrets
+     * @param targetId      String
+     * @param sender        ISender
+     * @return Target
+     * @throws IOException Exception
+     */
+    private Target getTarget(final Configuration configuration, final String name, final String targetId,
+                             final ISender sender) throws IOException {
+        senders.add(sender);
+        if (!GraylogOutputCarrierConfig.isJournal(configuration)) {
+            return new Target(name, sender, null);
+        }
+
+        final JournalFallback journal = new JournalFallback(stream.getId(), getJournal(targetId, configuration), sender);
+        journals.add(journal);
+        return new Target(name, sender, journal, GraylogOutputCarrierConfig.isBreakerFallback(configuration));
+    }
+
+    /**
+     * Get output id, stable for stream, webhook and channel, same as id of additional target with them.
+     * Output without channel keeps id of webhook only.
+     *
+     * @param stream        Stream
+     * @param configuration Configuration
+     * @return String
+     */
+    private static String getOutputId(final Stream stream, final Configuration configuration) {
+        final String channel = GraylogOutputCarrierConfig.getChannel(configuration);
+        return getTargetId(stream, GraylogOutputCarrierConfig.getWebhookURL(configuration) + (channel != null ? channel : ""));
+    }
+
+    /**
+     * Get target id, stable for stream and webhook.
+     *
+     * @param stream     Stream
+     * @param webhookUrl String
+     * @return String
+     */
+    private static String getTargetId(final Stream stream, final String webhookUrl) {
+        return DigestUtils.md5Hex(stream.getId() + webhookUrl);
+    }
+
+    /**
+     * Open journal of target.
+     *
+     * @param targetId      String
+     * @param configuration Configuration
+     * @return Journal
+     * @throws IOException Exception
+     */
+    private static Journal getJournal(final String targetId, final Configuration configuration) throws IOException {
+        return new Journal(Paths.get(GraylogOutputCarrierConfig.getJournalPath(configuration), targetId),
+                GraylogOutputCarrierConfig.getJournalMaxSize(configuration) * 1024L * 1024L,
+                TimeUnit.HOURS.toMillis(GraylogOutputCarrierConfig.getJournalMaxAge(configuration)));
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,73 @@
+package com.alchemist.graylog.plugin.rest;
+
+import com.alchemist.graylog.plugin.audit.AuditRecord;
+import com.alchemist.graylog.plugin.audit.AuditRing;
+import com.google.inject.Inject;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+import org.graylog2.plugin.rest.PluginRestResource;
+import org.graylog2.shared.rest.resources.RestResource;
+import org.graylog2.shared.security.RestPermissions;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class AuditResource.
+ * <p>
+ * Recent suppression decisions of outputs, e.g. {@code GET /api/plugins/com.alchemist.graylog.plugin/audit?stream=id}.
+ * Only records of streams user may read are returned.
+ *
+ * @author Alchemist
+ */
+@RequiresAuthentication
+@Api(value = "OutputCarrier/Audit", description = "Recent messages skipped by output carrier")
+@Path("/audit")
+@Produces(MediaType.APPLICATION_JSON)
+public class AuditResource extends RestResource implements PluginRestResource {
+    private static final int LIMIT_MAX = 1024;
+
+    private final AuditRing ring;
+
+    /**
+     * Constructor.
+     *
+     * @param ring AuditRing
+     */
+    @Inject
+    public AuditResource(final AuditRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Get recent records of readable streams, newest first.
+     *
+     * @param stream String
+     * @param limit  int
+     * @return List
+     */
+    @GET
+    @ApiOperation("Get recent skipped messages, newest first")
+    public List<AuditRecord> getRecent(@ApiParam(name = "stream", value = "Stream id, all streams if empty")
+                                       @QueryParam("stream") final String stream,
+                                       @ApiParam(name = "limit", value = "Records limit")
+                                       @QueryParam("limit") @DefaultValue("100") final int limit) {
+        final String id = stream == null || stream.isEmpty() ? null : stream;
+        if (id != null) {
+            checkPermission(RestPermissions.STREAMS_READ, id);
+        }
+
+        final Map<String, Boolean> permitted = new HashMap<>();
+        return ring.getRecent(id, Math.max(0, Math.min(limit, LIMIT_MAX)),
+                record -> permitted.computeIfAbsent(record, key -> isPermitted(RestPermissions.STREAMS_READ, key)));
+    }
+}
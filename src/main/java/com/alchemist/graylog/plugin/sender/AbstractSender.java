@@ -1,41 +1,61 @@
 package com.alchemist.graylog.plugin.sender;
 
 import com.alchemist.graylog.plugin.helpers.MessageHelper;
-import com.google.common.base.Charsets;
-import com.google.common.io.ByteStreams;
+import com.alchemist.graylog.plugin.helpers.StackTraceHelper;
+import com.alchemist.graylog.plugin.transport.CircuitBreaker;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.EndpointHealth;
+import com.alchemist.graylog.plugin.transport.ITransport;
+import com.alchemist.graylog.plugin.transport.RateLimiter;
+import com.alchemist.graylog.plugin.transport.Response;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.http.client.utils.DateUtils;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
-
-import static org.apache.commons.lang.StringEscapeUtils.escapeHtml;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class AbstractSender.
+ * <p>
+ * Payload is written by streaming JSON generator into reusable per-thread UTF-8 buffer,
+ * text parts are collected in reusable per-thread builder without intermediate format strings.
  *
  * @author Alchemist
  */
 public abstract class AbstractSender implements ISender {
 
-    private static final String TEXT_TPL = "%s...";
+    private static final String TEXT_ELLIPSIS = "...";
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ThreadLocal<RenderBuffer> BUFFERS = ThreadLocal.withInitial(RenderBuffer::new);
+    private static final String CONTENT_TYPE = "application/json";
+    private static final long RETRY_AFTER_DEFAULT = 1000; // millis
 
     protected final URL webhook;
     protected final String channel;
     protected final String graylogUrl;
     protected final int textLimit;
+    protected final int stackFrames;
     protected final Stream stream;
     protected final List<String> fields;
+    protected final Endpoint endpoint;
+    protected final ITransport transport;
+    protected final RateLimiter limiter;
+    protected final EndpointHealth health;
+    protected final CircuitBreaker breaker;
 
     /**
      * Constructor.
@@ -45,11 +65,20 @@ public abstract class AbstractSender implements ISender {
      * @param channel          String
      * @param graylogUrl       String
      * @param textLimit        int
+     * @param stackFrames      int top frames of stack trace kept per exception, 0 to send text as is
      * @param additionalFields List
+     * @param endpoint         Endpoint
+     * @param rate             double default permits per sec of endpoint
+     * @param burst            int max permits at once of endpoint
      */
     public AbstractSender(final Stream stream, final String webhookUrl, final String channel, final String graylogUrl,
-                          final int textLimit, final List<String> additionalFields) throws Exception {
+                          final int textLimit, final int stackFrames, final List<String> additionalFields,
+                          final Endpoint endpoint, final double rate, final int burst) throws Exception {
         this.stream = stream;
+        this.endpoint = endpoint;
+        this.transport = endpoint.getTransport();
+        this.health = endpoint.getHealth();
+        this.breaker = endpoint.getBreaker();
 
         // Set webhook URL
         try {
@@ -58,9 +87,11 @@ public abstract class AbstractSender implements ISender {
             throw new Exception("Error while constructing webhook URL", e);
         }
 
+        this.limiter = endpoint.getLimiter(rate, burst);
         this.channel = channel;
         this.graylogUrl = graylogUrl;
         this.textLimit = textLimit;
+        this.stackFrames = stackFrames;
         this.fields = new ArrayList<String>() {{
             add("app");
             add("env");
@@ -73,141 +104,480 @@ public abstract class AbstractSender implements ISender {
     }
 
     /**
-     * Perform message.
+     * Perform notification.
      *
-     * @param message Message
+     * @param notification Notification
+     * @throws Exception Exception
+     */
+    @Override
+    public void perform(final Notification notification) throws Exception {
+        deliver(render(notification));
+    }
+
+    /**
+     * Render notification payload.
+     *
+     * @param notification Notification
+     * @return byte[] UTF-8 JSON
      * @throws Exception Exception
      */
     @Override
-    public void perform(final Message message) throws Exception {
-        send(prepare(message));
+    public byte[] render(final Notification notification) throws Exception {
+        final RenderBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        try (final JsonGenerator json = JSON.createGenerator(buffer, JsonEncoding.UTF8)) {
+            prepare(notification, json);
+        }
+        final byte[] payload = buffer.toByteArray();
+        buffer.trim();
+        return payload;
+    }
+
+    /**
+     * Render several notifications, each into own payload unless sender packs them.
+     *
+     * @param batch List of Notification
+     * @return List of byte[]
+     * @throws Exception Exception
+     */
+    @Override
+    public List<byte[]> pack(final List<Notification> batch) throws Exception {
+        final List<byte[]> payloads = new ArrayList<>(batch.size());
+        for (final Notification notification : batch) {
+            payloads.add(render(notification));
+        }
+        return payloads;
+    }
+
+    /**
+     * Pack notifications by chunks, each chunk is prepared into one payload.
+     *
+     * @param batch List of Notification
+     * @param chunk int max notifications per payload
+     * @return List of byte[]
+     * @throws IOException Exception
+     */
+    protected List<byte[]> pack(final List<Notification> batch, final int chunk) throws IOException {
+        final List<byte[]> payloads = new ArrayList<>(batch.size() / chunk + 1);
+        for (int from = 0; from < batch.size(); from += chunk) {
+            final List<Notification> part = batch.subList(from, Math.min(batch.size(), from + chunk));
+            payloads.add(render(json -> prepare(part, json)));
+        }
+        return payloads;
+    }
+
+    /**
+     * Render payload written by layout.
+     *
+     * @param layout Layout
+     * @return byte[] UTF-8 JSON
+     * @throws IOException Exception
+     */
+    protected byte[] render(final Layout layout) throws IOException {
+        final RenderBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        try (final JsonGenerator json = JSON.createGenerator(buffer, JsonEncoding.UTF8)) {
+            layout.write(json);
+        }
+        final byte[] payload = buffer.toByteArray();
+        buffer.trim();
+        return payload;
+    }
+
+    /**
+     * Deliver rendered payload.
+     *
+     * @param payload byte[]
+     * @throws SendException Exception
+     */
+    @Override
+    public void deliver(final byte[] payload) throws SendException {
+        send(payload);
+    }
+
+    /**
+     * Get endpoint.
+     *
+     * @return Endpoint
+     */
+    @Override
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Stop sender, release its endpoint.
+     */
+    @Override
+    public void stop() {
+        endpoint.release();
     }
 
     /**
      * Send JSON message.
      *
-     * @param json String
+     * @param json byte[]
      * @return String
-     * @throws Exception Exception
+     * @throws SendException Exception
+     */
+    protected String send(final byte[] json) throws SendException {
+        return send(json, CONTENT_TYPE, null);
+    }
+
+    /**
+     * Send body, any 2xx status is success.
+     *
+     * @param body            byte[]
+     * @param contentType     String
+     * @param contentEncoding String, null if body is not encoded
+     * @return String
+     * @throws SendException Exception
      */
-    protected String send(final String json) throws Exception {
-        // Prepare request
-        final HttpURLConnection conn;
+    protected String send(final byte[] body, final String contentType, final String contentEncoding) throws SendException {
+        // Fail at once while endpoint is down
+        if (!breaker.allow()) {
+            throw new SendException("Webhook circuit breaker is open", breaker.getRemaining());
+        }
+
+        // Wait for endpoint rate limit
         try {
-            conn = (HttpURLConnection) webhook.openConnection();
-            conn.setDoOutput(true);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-        } catch (final IOException e) {
-            throw new Exception("Could not open connection to webhook API", e);
+            limiter.acquire();
+        } catch (final InterruptedException e) {
+            breaker.cancel();
+            Thread.currentThread().interrupt();
+            throw new SendException("Interrupted while waiting for webhook rate limit", e);
         }
 
         // Send request
-        try (final Writer writer = new OutputStreamWriter(conn.getOutputStream(), StandardCharsets.UTF_8)) {
-            writer.write(json);
-            writer.flush();
+        final Response response;
+        try {
+            response = transport.post(webhook, contentType, contentEncoding, body);
         } catch (final IOException e) {
-            throw new Exception("Could not POST to webhook API", e);
+            health.onFailure(0);
+            breaker.onFailure(e instanceof InterruptedIOException);
+            throw new SendException("Could not POST to webhook API", e);
         }
 
-        // Check response
-        if (conn.getResponseCode() == 200) {
-            try (final InputStream responseStream = conn.getInputStream()) {
-                final byte[] responseBytes = ByteStreams.toByteArray(responseStream);
-                return new String(responseBytes, Charsets.UTF_8);
+        // Check response, endpoint answering 4xx is alive
+        if (response.getStatus() >= 500) {
+            breaker.onFailure(false);
+        } else {
+            breaker.onSuccess();
+        }
+        if (response.getStatus() >= 200 && response.getStatus() < 300) {
+            limiter.onSuccess();
+            health.onSuccess();
+            return response.getBody();
+        }
+        health.onFailure(response.getStatus());
+        if (response.getStatus() == 429) {
+            final long retryAfter = getRetryAfter(response);
+            limiter.onThrottled(retryAfter);
+            throw new SendException("Too many requests", response.getStatus(), retryAfter);
+        } else if (response.getStatus() == 400) {
+            throw new SendException(contentEncoding == null
+                    ? String.format("Bad request on message: %s", new String(body, StandardCharsets.UTF_8))
+                    : String.format("Bad request on %s encoded body of %s bytes", contentEncoding, body.length), response.getStatus(), 0);
+        } else {
+            throw new SendException(String.format("Unexpected HTTP response status %s", response.getStatus()), response.getStatus(), 0);
+        }
+    }
 
-            } catch (final IOException e) {
-                throw new Exception("Could not read response body from webhook API", e);
+    /**
+     * Get throttle pause from response.
+     *
+     * @param response Response
+     * @return long millis
+     */
+    protected long getRetryAfter(final Response response) {
+        final String value = response.getRetryAfter();
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+            } catch (final NumberFormatException e) {
+                final Date date = DateUtils.parseDate(value.trim());
+                if (date != null) {
+                    return Math.max(0, date.getTime() - System.currentTimeMillis());
+                }
             }
-        } else if (conn.getResponseCode() == 429) {
-            throw new Exception("Too many requests");
-        } else if (conn.getResponseCode() == 400) {
-            throw new Exception(String.format("Bad request on message: %s", json));
-        } else {
-            throw new Exception(String.format("Unexpected HTTP response status %s", conn.getResponseCode()));
         }
+        return RETRY_AFTER_DEFAULT;
     }
 
     /**
-     * Prepare message.
+     * Prepare notification.
      *
-     * @param message Message
-     * @return String
-     * @throws Exception Exception
+     * @param notification Notification
+     * @param json         JsonGenerator
+     * @throws IOException Exception
      */
-    protected abstract String prepare(final Message message) throws Exception;
+    protected abstract void prepare(final Notification notification, final JsonGenerator json) throws IOException;
+
+    /**
+     * Prepare several notifications in one payload, senders packing by chunks override it.
+     *
+     * @param batch List of Notification
+     * @param json  JsonGenerator
+     * @throws IOException Exception
+     */
+    protected void prepare(final List<Notification> batch, final JsonGenerator json) throws IOException {
+        throw new IOException(String.format("%s does not pack notifications", getClass().getSimpleName()));
+    }
+
+    /**
+     * Get empty text builder, the same builder is returned on every call of the thread.
+     *
+     * @return StringBuilder
+     */
+    protected StringBuilder text() {
+        final StringBuilder text = BUFFERS.get().text;
+        text.setLength(0);
+        return text;
+    }
+
+    /**
+     * Write text field without building String.
+     *
+     * @param json  JsonGenerator
+     * @param field String
+     * @param text  StringBuilder
+     * @throws IOException Exception
+     */
+    protected void writeText(final JsonGenerator json, final String field, final StringBuilder text) throws IOException {
+        final char[] chars = BUFFERS.get().chars(text.length());
+        text.getChars(0, text.length(), chars, 0);
+        json.writeFieldName(field);
+        json.writeString(chars, 0, text.length());
+    }
 
     /**
-     * Get message URL.
+     * Append message URL.
      *
      * @param message Message
-     * @return String
+     * @param buf     StringBuilder
+     * @return StringBuilder
      */
-    protected String getUrl(final Message message) {
-        return MessageHelper.getURL(graylogUrl, stream, message);
+    protected StringBuilder appendUrl(final Message message, final StringBuilder buf) {
+        return MessageHelper.appendURL(buf, graylogUrl, stream, message);
     }
 
     /**
-     * Get message timestamp.
+     * Append message timestamp.
      *
      * @param message Message
-     * @return String
+     * @param buf     StringBuilder
+     * @return StringBuilder
+     * @throws IOException Exception
      */
-    protected String getTimestamp(final Message message) {
-        return message.getTimestamp()
-                .toDateTime(DateTimeZone.getDefault())
-                .toString(DateTimeFormat.mediumDateTime());
+    protected StringBuilder appendTimestamp(final Message message, final StringBuilder buf) throws IOException {
+        DateTimeFormat.mediumDateTime().withZone(DateTimeZone.getDefault()).printTo(buf, message.getTimestamp());
+        return buf;
     }
 
     /**
-     * Get message pre-text.
+     * Append message pre-text, fields are separated by space.
      *
-     * @param message String
-     * @param format  String
-     * @return String
+     * @param message Message
+     * @param buf     StringBuilder
+     * @param open    String before field name
+     * @param close   String between field name and value
+     * @return StringBuilder
      */
-    protected String getPretext(final Message message, final String format) {
-        final StringBuilder buf = new StringBuilder();
+    protected StringBuilder appendPretext(final Message message, final StringBuilder buf, final String open, final String close) {
+        boolean first = true;
         for (final String field : fields) {
-            if (message.hasField(field)) {
-                buf.append(String.format(format, field, message.getField(field)));
+            final Object value = message.getField(field);
+            if (value != null) {
+                if (!first) {
+                    buf.append(' ');
+                }
+                first = false;
+                buf.append(open).append(field).append(close);
+                appendEscaped(buf, value instanceof String ? (String) value : String.valueOf(value));
             }
         }
-        return buf.toString().trim();
+        return buf;
     }
 
     /**
-     * Get message text.
+     * Append escaped message text, cut by text limit. Only the prefix of text which fits the limit is read,
+     * stack trace is summarized first if enabled.
      *
-     * @param message String
-     * @param format  String
-     * @return String
+     * @param message Message
+     * @param buf     StringBuilder
+     * @return StringBuilder
      */
-    protected String getText(final Message message, final String format) {
-        final String text = escape(message.getMessage());
-        if (text.length() <= textLimit) {
-            return text;
+    protected StringBuilder appendText(final Message message, final StringBuilder buf) {
+        final String text = message.getMessage();
+        if (text == null) {
+            return buf;
+        }
+
+        if (stackFrames > 0) {
+            final StringBuilder summary = BUFFERS.get().summary;
+            summary.setLength(0);
+            return appendEscaped(buf, StackTraceHelper.appendSummary(summary, text, stackFrames, textLimit), textLimit);
         }
-        return String.format(format, text.substring(0, textLimit));
+        return appendEscaped(buf, text, textLimit);
     }
 
     /**
      * Get message text.
      *
-     * @param message String
+     * @param message Message
      * @return String
      */
     protected String getText(final Message message) {
-        return getText(message, TEXT_TPL);
+        return appendText(message, new StringBuilder()).toString();
     }
 
     /**
-     * Escape string.
+     * Append value with HTML special chars escaped.
      *
+     * @param buf   StringBuilder
      * @param value String
-     * @return String
+     * @return StringBuilder
+     */
+    protected static StringBuilder appendEscaped(final StringBuilder buf, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            final String entity = getEntity(c);
+            if (entity != null) {
+                buf.append(entity);
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * Append value with HTML special chars escaped until escaped output reaches limit, then ellipsis.
+     * Entity and surrogate pair are never cut, the rest of value is not read.
+     *
+     * @param buf   StringBuilder
+     * @param value CharSequence
+     * @param limit int max escaped chars
+     * @return StringBuilder
+     */
+    protected static StringBuilder appendEscaped(final StringBuilder buf, final CharSequence value, final int limit) {
+        final int end = buf.length() + limit;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            final String entity = getEntity(c);
+            final boolean pair = Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1));
+            final int width = entity != null ? entity.length() : pair ? 2 : 1;
+            if (buf.length() + width > end) {
+                return buf.append(TEXT_ELLIPSIS);
+            }
+
+            if (entity != null) {
+                buf.append(entity);
+            } else if (pair) {
+                buf.append(c).append(value.charAt(++i));
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * Get HTML entity of special char.
+     *
+     * @param c char
+     * @return String or null if char is not special
+     */
+    private static String getEntity(final char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            default:
+                return null;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Interface Layout.
+     */
+    protected interface Layout {
+        /**
+         * Write payload.
+         *
+         * @param json JsonGenerator
+         * @throws IOException Exception
+         */
+        void write(final JsonGenerator json) throws IOException;
+    }
+
+    /**
+     * Class RenderBuffer.
+     * <p>
+     * Per-thread reusable buffers, oversized buffers are not kept.
+     *
+     * @author Alchemist
      */
-    protected String escape(final String value) {
-        return escapeHtml(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    private static final class RenderBuffer extends ByteArrayOutputStream {
+        private static final int SIZE = 4 * 1024;
+        private static final int SIZE_MAX = 64 * 1024;
+
+        private final StringBuilder text = new StringBuilder(SIZE);
+        private final StringBuilder summary = new StringBuilder(SIZE);
+        private char[] chars = new char[SIZE];
+
+        /**
+         * Constructor.
+         */
+        private RenderBuffer() {
+            super(SIZE);
+        }
+
+        /**
+         * Get char buffer of length at least.
+         *
+         * @param length int
+         * @return char[]
+         */
+        private char[] chars(final int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            return chars;
+        }
+
+        /**
+         * Drop buffers grown over limit.
+         */
+        private void trim() {
+            if (buf.length > SIZE_MAX) {
+                buf = new byte[SIZE];
+            }
+            if (chars.length > SIZE_MAX) {
+                chars = new char[SIZE];
+            }
+            trim(text);
+            trim(summary);
+        }
+
+        /**
+         * Drop builder grown over limit.
+         *
+         * @param builder StringBuilder
+         */
+        private static void trim(final StringBuilder builder) {
+            if (builder.capacity() > SIZE_MAX) {
+                builder.setLength(0);
+                builder.trimToSize();
+                builder.ensureCapacity(SIZE);
+            }
+        }
     }
 }
@@ -0,0 +1,233 @@
+package com.alchemist.graylog.plugin.sender;
+
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class BulkSender.
+ * <p>
+ * Forwards messages to HTTP collector in bulk: each message is a JSON object of selected fields or of all fields,
+ * batch is one NDJSON or JSON array body, optionally gzip compressed, split by body size limit.
+ *
+ * @author Alchemist
+ */
+public final class BulkSender extends AbstractSender {
+    public static final String TAG = BulkSender.class.getSimpleName();
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_JSON = "json";
+
+    private static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String GZIP = "gzip";
+    private static final int GZIP_BUFFER = 8 * 1024;
+
+    // Collector accepts far more than messengers, batching keeps request rate low
+    private static final double RATE = 50.0;
+    private static final int BURST = 50;
+
+    private final boolean ndjson;
+    private final List<String> bulkFields;
+    private final int maxBytes;
+    private final boolean gzip;
+
+    /**
+     * Constructor.
+     *
+     * @param stream     Stream
+     * @param webhookUrl String
+     * @param format     String ndjson or json
+     * @param bulkFields List of fields to send, empty to send all fields
+     * @param maxBytes   int body size limit before compression
+     * @param gzip       boolean
+     * @param endpoint   Endpoint
+     */
+    public BulkSender(final Stream stream, final String webhookUrl, final String format, final List<String> bulkFields,
+                      final int maxBytes, final boolean gzip, final Endpoint endpoint) throws Exception {
+        super(stream, webhookUrl, null, null, 0, 0, Collections.emptyList(), endpoint, RATE, BURST);
+        this.ndjson = !FORMAT_JSON.equalsIgnoreCase(format);
+        this.bulkFields = new ArrayList<>(bulkFields);
+        this.maxBytes = maxBytes;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Render notification as body of one message.
+     *
+     * @param notification Notification
+     * @return byte[]
+     * @throws Exception Exception
+     */
+    @Override
+    public byte[] render(final Notification notification) throws Exception {
+        return pack(Collections.singletonList(notification)).get(0);
+    }
+
+    /**
+     * Pack notifications into bodies up to size limit.
+     *
+     * @param batch List of Notification
+     * @return List of byte[]
+     * @throws Exception Exception
+     */
+    @Override
+    public List<byte[]> pack(final List<Notification> batch) throws Exception {
+        final List<byte[]> payloads = new ArrayList<>(1);
+        Body body = null;
+        for (final Notification notification : batch) {
+            final byte[] record = render(json -> prepare(notification, json));
+            if (body != null && body.size + record.length + 1 > maxBytes) {
+                payloads.add(body.finish());
+                body = null;
+            }
+            if (body == null) {
+                body = new Body();
+            }
+            body.add(record);
+        }
+        if (body != null) {
+            payloads.add(body.finish());
+        }
+        return payloads;
+    }
+
+    /**
+     * Deliver rendered body.
+     *
+     * @param payload byte[]
+     * @throws SendException Exception
+     */
+    @Override
+    public void deliver(final byte[] payload) throws SendException {
+        send(payload, ndjson ? CONTENT_TYPE_NDJSON : CONTENT_TYPE_JSON, gzip ? GZIP : null);
+    }
+
+    /**
+     * Prepare message object.
+     *
+     * @param notification Notification
+     * @param json         JsonGenerator
+     * @throws IOException Exception
+     */
+    @Override
+    protected void prepare(final Notification notification, final JsonGenerator json) throws IOException {
+        final Message message = notification.getMessage();
+        json.writeStartObject();
+        if (bulkFields.isEmpty()) {
+            for (final Map.Entry<String, Object> field : message.getFields().entrySet()) {
+                json.writeFieldName(field.getKey());
+                writeValue(json, field.getValue());
+            }
+        } else {
+            for (final String field : bulkFields) {
+                final Object value = message.getField(field);
+                if (value != null) {
+                    json.writeFieldName(field);
+                    writeValue(json, value);
+                }
+            }
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * Write field value, value without JSON type is written as string.
+     *
+     * @param json  JsonGenerator
+     * @param value Object
+     * @throws IOException Exception
+     */
+    private static void writeValue(final JsonGenerator json, final Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof String) {
+            json.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            json.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            json.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            final double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                json.writeString(value.toString());
+            } else {
+                json.writeNumber(number);
+            }
+        } else if (value instanceof BigDecimal) {
+            json.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            json.writeNumber((BigInteger) value);
+        } else {
+            json.writeString(value.toString());
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Body.
+     * <p>
+     * One request body, records are compressed as they are added.
+     */
+    private final class Body {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final OutputStream output;
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @throws IOException Exception
+         */
+        private Body() throws IOException {
+            this.output = gzip ? new GZIPOutputStream(buffer, GZIP_BUFFER) : buffer;
+        }
+
+        /**
+         * Add record.
+         *
+         * @param record byte[] UTF-8 JSON object
+         * @throws IOException Exception
+         */
+        private void add(final byte[] record) throws IOException {
+            if (!ndjson) {
+                output.write(size == 0 ? '[' : ',');
+                size++;
+            }
+            output.write(record);
+            size += record.length;
+            if (ndjson) {
+                output.write('\n');
+                size++;
+            }
+        }
+
+        /**
+         * Finish body.
+         *
+         * @return byte[]
+         * @throws IOException Exception
+         */
+        private byte[] finish() throws IOException {
+            if (!ndjson) {
+                output.write(']');
+            }
+            output.close();
+            return buffer.toByteArray();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.alchemist.graylog.plugin.sender;
 
-import org.graylog2.plugin.Message;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+
+import java.util.List;
 
 /**
  * Interface ISender.
@@ -8,10 +10,48 @@ import org.graylog2.plugin.Message;
 public interface ISender {
 
     /**
-     * Perform message.
+     * Perform notification.
+     *
+     * @param notification Notification
+     * @throws Exception Exception
+     */
+    void perform(final Notification notification) throws Exception;
+
+    /**
+     * Render notification payload.
+     *
+     * @param notification Notification
+     * @return byte[]
+     * @throws Exception Exception
+     */
+    byte[] render(final Notification notification) throws Exception;
+
+    /**
+     * Render several notifications into as few payloads as endpoint accepts.
      *
-     * @param message Message
+     * @param batch List of Notification
+     * @return List of byte[]
      * @throws Exception Exception
      */
-    void perform(final Message message) throws Exception;
+    List<byte[]> pack(final List<Notification> batch) throws Exception;
+
+    /**
+     * Deliver rendered payload.
+     *
+     * @param payload byte[]
+     * @throws SendException Exception
+     */
+    void deliver(final byte[] payload) throws SendException;
+
+    /**
+     * Get endpoint.
+     *
+     * @return Endpoint
+     */
+    Endpoint getEndpoint();
+
+    /**
+     * Stop sender, release its endpoint.
+     */
+    void stop();
 }
@@ -1,9 +1,11 @@
 package com.alchemist.graylog.plugin.sender;
 
-import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -16,16 +18,16 @@ public final class MattermostSender extends AbstractSender {
     private static final String WARNING = "#EBB424";
     private static final String OK = "#49C39E";
 
-    private static final String PRETEXT_TPL = "[%s]: %s ";
-    private static final String TEMPLATE = "{" +
-            "\"username\":\"Graylog\"," +
-            "\"channel\":\"%s\"," +
-            "\"attachments\":[{" +
-            "\"author_name\":\"%s\"," +
-            "\"title\":\"%s\"," +
-            "\"color\":\"%s\"," +
-            "\"text\":\"%s [View](%s)\"" +
-            "}]}";
+    // Attachments per packed post, the same as Slack
+    private static final int ATTACHMENTS_MAX = 20;
+
+    // Mattermost default rate limit is 10 requests per second
+    private static final double RATE = 10.0;
+    private static final int BURST = 20;
+
+    private static final String USERNAME = "Graylog";
+    private static final String PRETEXT_OPEN = "[";
+    private static final String PRETEXT_CLOSE = "]: ";
 
     /**
      * Constructor.
@@ -35,34 +37,109 @@ public final class MattermostSender extends AbstractSender {
      * @param channel          String
      * @param graylogUrl       String
      * @param textLimit        int
+     * @param stackFrames      int
      * @param additionalFields List
+     * @param endpoint         Endpoint
      */
     public MattermostSender(final Stream stream, final String webhookUrl, final String channel, final String graylogUrl,
-                            final int textLimit, final List<String> additionalFields) throws Exception {
-        super(stream, webhookUrl, channel, graylogUrl, textLimit, additionalFields);
+                            final int textLimit, final int stackFrames, final List<String> additionalFields,
+                            final Endpoint endpoint) throws Exception {
+        super(stream, webhookUrl, channel, graylogUrl, textLimit, stackFrames, additionalFields, endpoint, RATE, BURST);
     }
 
     /**
-     * Prepare message.
+     * Prepare notification.
      *
-     * @param message Message
-     * @return String
+     * @param notification Notification
+     * @param json         JsonGenerator
+     * @throws IOException Exception
+     */
+    @Override
+    protected void prepare(final Notification notification, final JsonGenerator json) throws IOException {
+        writeStart(json);
+        writeAttachment(notification, json);
+        writeEnd(json);
+    }
+
+    /**
+     * Pack notifications as attachments, up to attachments limit per payload.
+     *
+     * @param batch List of Notification
+     * @return List of byte[]
      * @throws Exception Exception
      */
     @Override
-    protected String prepare(final Message message) throws Exception {
-        return String.format(TEMPLATE, channel, getPretext(message, PRETEXT_TPL), getColor(message), getText(message),
-                getUrl(message), getTimestamp(message));
+    public List<byte[]> pack(final List<Notification> batch) throws Exception {
+        return pack(batch, ATTACHMENTS_MAX);
+    }
+
+    /**
+     * Prepare notifications as attachments of one payload.
+     *
+     * @param batch List of Notification
+     * @param json  JsonGenerator
+     * @throws IOException Exception
+     */
+    @Override
+    protected void prepare(final List<Notification> batch, final JsonGenerator json) throws IOException {
+        writeStart(json);
+        for (final Notification notification : batch) {
+            writeAttachment(notification, json);
+        }
+        writeEnd(json);
+    }
+
+    /**
+     * Write payload start up to attachments.
+     *
+     * @param json JsonGenerator
+     * @throws IOException Exception
+     */
+    private void writeStart(final JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("username", USERNAME);
+        if (channel != null && !channel.isEmpty()) {
+            json.writeStringField("channel", channel);
+        }
+        json.writeArrayFieldStart("attachments");
+    }
+
+    /**
+     * Write payload end after attachments.
+     *
+     * @param json JsonGenerator
+     * @throws IOException Exception
+     */
+    private void writeEnd(final JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    /**
+     * Write notification attachment.
+     *
+     * @param notification Notification
+     * @param json         JsonGenerator
+     * @throws IOException Exception
+     */
+    private void writeAttachment(final Notification notification, final JsonGenerator json) throws IOException {
+        final Message message = notification.getMessage();
+        json.writeStartObject();
+        writeText(json, "author_name", appendPretext(message, text(), PRETEXT_OPEN, PRETEXT_CLOSE));
+        writeText(json, "title", appendTimestamp(message, text()));
+        json.writeStringField("color", getColor(notification.getLevel()));
+        writeText(json, "text", appendUrl(message, appendText(message, text()).append(" [View](")).append(')'));
+        json.writeEndObject();
     }
 
     /**
      * Get message emoji.
      *
-     * @param message Message
+     * @param level int
      * @return String
      */
-    private String getColor(final Message message) {
-        switch (MessageHelper.getLevel(message)) {
+    private String getColor(final int level) {
+        switch (level) {
             case 0:
             case 1:
             case 2:
@@ -0,0 +1,78 @@
+package com.alchemist.graylog.plugin.sender;
+
+import org.graylog2.plugin.Message;
+
+/**
+ * Class Notification.
+ * <p>
+ * Message accepted by output with its level parsed once and its routed targets, carried from output to sender.
+ *
+ * @author Alchemist
+ */
+public final class Notification {
+    public static final long ALL_TARGETS = -1L;
+
+    private final Message message;
+    private final int level;
+    private final long targets;
+    private final long created = System.nanoTime();
+
+    /**
+     * Constructor for all targets.
+     *
+     * @param message Message
+     * @param level   int
+     */
+    public Notification(final Message message, final int level) {
+        this(message, level, ALL_TARGETS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param message Message
+     * @param level   int
+     * @param targets long bit mask of target indexes
+     */
+    public Notification(final Message message, final int level, final long targets) {
+        this.message = message;
+        this.level = level;
+        this.targets = targets;
+    }
+
+    /**
+     * Get message.
+     *
+     * @return Message
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * Get message level.
+     *
+     * @return int
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get targets.
+     *
+     * @return long bit mask of target indexes
+     */
+    public long getTargets() {
+        return targets;
+    }
+
+    /**
+     * Get creation time.
+     *
+     * @return long nanos, only for measuring elapsed time
+     */
+    public long getCreated() {
+        return created;
+    }
+}
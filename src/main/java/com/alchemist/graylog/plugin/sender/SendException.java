@@ -0,0 +1,114 @@
+package com.alchemist.graylog.plugin.sender;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+
+/**
+ * Class SendException.
+ * <p>
+ * Delivery failure. Throttling, server errors and connect/read timeouts are retryable,
+ * other client errors are permanent.
+ *
+ * @author Alchemist
+ */
+public final class SendException extends Exception {
+
+    private final int status;
+    private final boolean retryable;
+    private final long retryAfter;
+    private final boolean open;
+
+    /**
+     * Constructor of HTTP error.
+     *
+     * @param message    String
+     * @param status     int
+     * @param retryAfter long millis
+     */
+    public SendException(final String message, final int status, final long retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryable = status == 429 || status >= 500;
+        this.retryAfter = retryAfter;
+        this.open = false;
+    }
+
+    /**
+     * Constructor of request not sent while circuit breaker is open.
+     *
+     * @param message    String
+     * @param retryAfter long millis until breaker lets probes through
+     */
+    public SendException(final String message, final long retryAfter) {
+        super(message);
+        this.status = 0;
+        this.retryable = true;
+        this.retryAfter = retryAfter;
+        this.open = true;
+    }
+
+    /**
+     * Constructor of I/O error.
+     *
+     * @param message String
+     * @param cause   IOException
+     */
+    public SendException(final String message, final IOException cause) {
+        super(message, cause);
+        this.status = 0;
+        this.retryable = cause instanceof InterruptedIOException || cause instanceof ConnectException;
+        this.retryAfter = 0;
+        this.open = false;
+    }
+
+    /**
+     * Constructor of error before request, permanent unless waiting was interrupted, then request was not sent.
+     *
+     * @param message String
+     * @param cause   Throwable
+     */
+    public SendException(final String message, final Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+        this.retryable = cause instanceof InterruptedException;
+        this.retryAfter = 0;
+        this.open = false;
+    }
+
+    /**
+     * Get HTTP status, 0 if request failed.
+     *
+     * @return int
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Is delivery worth retrying.
+     *
+     * @return boolean
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * Get pause requested by endpoint.
+     *
+     * @return long millis
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Is request not sent due to open circuit breaker.
+     *
+     * @return boolean
+     */
+    public boolean isOpen() {
+        return open;
+    }
+}
@@ -1,10 +1,14 @@
 package com.alchemist.graylog.plugin.sender;
 
 import com.alchemist.graylog.plugin.GraylogOutputCarrierConfig;
+import com.alchemist.graylog.plugin.template.PayloadTemplate;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.EndpointRegistry;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.streams.Stream;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class SenderFactory.
@@ -26,47 +30,111 @@ public final class SenderFactory {
      * @param channel          String
      * @param graylogUrl       String
      * @param textLimit        int
+     * @param stackFrames      int
      * @param additionalFields List
+     * @param endpoint         Endpoint
      * @return ISender
      * @throws Exception Exception
      */
     public static ISender getSender(final Stream stream, final String type, final String webhookUrl,
                                     final String channel, final String graylogUrl, final int textLimit,
-                                    final List<String> additionalFields) throws Exception {
+                                    final int stackFrames, final List<String> additionalFields,
+                                    final Endpoint endpoint) throws Exception {
         if (type == null || type.isEmpty()) {
             throw new Exception("Sender type is wrong");
         }
 
         if (type.equalsIgnoreCase(SlackSender.TAG)) {
-            return new SlackSender(stream, webhookUrl, channel, graylogUrl, textLimit, additionalFields);
+            return new SlackSender(stream, webhookUrl, channel, graylogUrl, textLimit, stackFrames, additionalFields, endpoint);
         }
 
         if (type.equalsIgnoreCase(TelegramSender.TAG)) {
-            return new TelegramSender(stream, webhookUrl, channel, graylogUrl, textLimit, additionalFields);
+            return new TelegramSender(stream, webhookUrl, channel, graylogUrl, textLimit, stackFrames, additionalFields, endpoint);
         }
 
         if (type.equalsIgnoreCase(MattermostSender.TAG)) {
-            return new MattermostSender(stream, webhookUrl, channel, graylogUrl, textLimit, additionalFields);
+            return new MattermostSender(stream, webhookUrl, channel, graylogUrl, textLimit, stackFrames, additionalFields, endpoint);
         }
 
         throw new Exception("Unsupported Sender type");
     }
 
     /**
-     * Build Sender.
+     * Build Sender, endpoint is leased from registry and released by sender stop.
      *
      * @param stream        Stream
      * @param configuration Configuration
+     * @param registry      EndpointRegistry
      * @return ISender
      * @throws Exception Exception
      */
-    public static ISender getSender(final Stream stream, final Configuration configuration) throws Exception {
-        return getSender(stream,
+    public static ISender getSender(final Stream stream, final Configuration configuration,
+                                    final EndpointRegistry registry) throws Exception {
+        final ISender sender = getSender(stream, configuration, registry,
                 GraylogOutputCarrierConfig.getWebhookType(configuration),
                 GraylogOutputCarrierConfig.getWebhookURL(configuration),
-                GraylogOutputCarrierConfig.getChannel(configuration),
-                GraylogOutputCarrierConfig.getGraylogUrl(configuration),
-                GraylogOutputCarrierConfig.getTextLimit(configuration),
-                GraylogOutputCarrierConfig.getAdditionalFields(configuration));
+                GraylogOutputCarrierConfig.getChannel(configuration));
+
+        final PayloadTemplate template = GraylogOutputCarrierConfig.getPayloadTemplate(configuration);
+        if (template != null) {
+            return new TemplateSender(template, sender, stream, GraylogOutputCarrierConfig.getGraylogUrl(configuration));
+        }
+        return sender;
+    }
+
+    /**
+     * Build Sender of additional target, message layout and transport settings are shared with output.
+     *
+     * @param stream        Stream
+     * @param configuration Configuration
+     * @param registry      EndpointRegistry
+     * @param target        Map with type, url and optional channel
+     * @return ISender
+     * @throws Exception Exception
+     */
+    public static ISender getSender(final Stream stream, final Configuration configuration,
+                                    final EndpointRegistry registry, final Map<String, String> target) throws Exception {
+        return getSender(stream, configuration, registry,
+                target.get(GraylogOutputCarrierConfig.TARGET_TYPE),
+                target.get(GraylogOutputCarrierConfig.TARGET_URL),
+                target.get(GraylogOutputCarrierConfig.TARGET_CHANNEL));
+    }
+
+    /**
+     * Build Sender on leased endpoint, lease is released if sender could not be built.
+     * Bulk sender takes its settings from configuration, messengers share message layout settings.
+     *
+     * @param stream        Stream
+     * @param configuration Configuration
+     * @param registry      EndpointRegistry
+     * @param type          String
+     * @param webhookUrl    String
+     * @param channel       String
+     * @return ISender
+     * @throws Exception Exception
+     */
+    private static ISender getSender(final Stream stream, final Configuration configuration,
+                                     final EndpointRegistry registry, final String type, final String webhookUrl,
+                                     final String channel) throws Exception {
+        final Endpoint endpoint = registry.acquire(type, webhookUrl, configuration);
+        try {
+            if (BulkSender.TAG.equalsIgnoreCase(type)) {
+                return new BulkSender(stream, webhookUrl,
+                        GraylogOutputCarrierConfig.getBulkFormat(configuration),
+                        GraylogOutputCarrierConfig.getBulkFields(configuration),
+                        GraylogOutputCarrierConfig.getBulkMaxSize(configuration),
+                        GraylogOutputCarrierConfig.isBulkGzip(configuration),
+                        endpoint);
+            }
+            return getSender(stream, type, webhookUrl, channel,
+                    GraylogOutputCarrierConfig.getGraylogUrl(configuration),
+                    GraylogOutputCarrierConfig.getTextLimit(configuration),
+                    GraylogOutputCarrierConfig.getStackFrames(configuration),
+                    GraylogOutputCarrierConfig.getAdditionalFields(configuration),
+                    endpoint);
+        } catch (final Exception e) {
+            endpoint.release();
+            throw e;
+        }
     }
 }
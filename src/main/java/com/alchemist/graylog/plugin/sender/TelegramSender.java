@@ -1,10 +1,18 @@
 package com.alchemist.graylog.plugin.sender;
 
-import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.Response;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 /**
  * Class TelegramSender.
@@ -12,15 +20,23 @@ import java.util.List;
 public final class TelegramSender extends AbstractSender {
     public static final String TAG = TelegramSender.class.getSimpleName();
 
+    private static final Logger logger = Logger.getLogger(TelegramSender.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private static final String ERROR = "&#x1F525;";
     private static final String WARNING = "&#x26A0;";
     private static final String OK = "&#x1F4E2;";
 
-    private static final String PRETEXT_TPL = "<b>%s</b>: %s ";
-    private static final String TEMPLATE = "{" +
-            "\"chat_id\":\"%s\"," +
-            "\"text\":\"%s[%s] %s <a href='%s'>View</a>\\n%s\"," +
-            "\"disable_notification\":\"false\", \"parse_mode\":\"html\"}";
+    // Telegram allows about one message per second per chat
+    private static final double RATE = 1.0;
+    private static final int BURST = 3;
+
+    private static final String PRETEXT_OPEN = "<b>";
+    private static final String PRETEXT_CLOSE = "</b>: ";
+
+    // Telegram text limit, markup is counted too so packed text is never over
+    private static final int TEXT_MAX = 4096;
+    private static final String SEPARATOR = "\n\n";
 
     /**
      * Constructor.
@@ -30,34 +46,116 @@ public final class TelegramSender extends AbstractSender {
      * @param channel          String
      * @param graylogUrl       String
      * @param textLimit        int
+     * @param stackFrames      int
      * @param additionalFields List
+     * @param endpoint         Endpoint
      */
     public TelegramSender(final Stream stream, final String webhookUrl, final String channel, final String graylogUrl,
-                          final int textLimit, final List<String> additionalFields) throws Exception {
-        super(stream, webhookUrl, channel, graylogUrl, textLimit, additionalFields);
+                          final int textLimit, final int stackFrames, final List<String> additionalFields,
+                          final Endpoint endpoint) throws Exception {
+        super(stream, webhookUrl, channel, graylogUrl, textLimit, stackFrames, additionalFields, endpoint, RATE, BURST);
     }
 
     /**
-     * Prepare message.
+     * Prepare notification.
      *
-     * @param message Message
-     * @return String
+     * @param notification Notification
+     * @param json         JsonGenerator
+     * @throws IOException Exception
+     */
+    @Override
+    protected void prepare(final Notification notification, final JsonGenerator json) throws IOException {
+        writeMessage(appendNotification(notification, text()), json);
+    }
+
+    /**
+     * Pack notifications texts into messages up to Telegram text limit.
+     *
+     * @param batch List of Notification
+     * @return List of byte[]
      * @throws Exception Exception
      */
     @Override
-    protected String prepare(final Message message) throws Exception {
-        return String.format(TEMPLATE, channel, getEmoji(message), getTimestamp(message),
-                getPretext(message, PRETEXT_TPL), getUrl(message), getText(message));
+    public List<byte[]> pack(final List<Notification> batch) throws Exception {
+        final List<byte[]> payloads = new ArrayList<>();
+        final StringBuilder packed = new StringBuilder(TEXT_MAX);
+        for (final Notification notification : batch) {
+            final StringBuilder text = appendNotification(notification, text());
+            if (packed.length() > 0 && packed.length() + SEPARATOR.length() + text.length() > TEXT_MAX) {
+                payloads.add(render(json -> writeMessage(packed, json)));
+                packed.setLength(0);
+            }
+            if (packed.length() > 0) {
+                packed.append(SEPARATOR);
+            }
+            packed.append(text);
+        }
+        if (packed.length() > 0) {
+            payloads.add(render(json -> writeMessage(packed, json)));
+        }
+        return payloads;
+    }
+
+    /**
+     * Append notification text.
+     *
+     * @param notification Notification
+     * @param text         StringBuilder
+     * @return StringBuilder
+     * @throws IOException Exception
+     */
+    private StringBuilder appendNotification(final Notification notification, final StringBuilder text) throws IOException {
+        final Message message = notification.getMessage();
+        text.append(getEmoji(notification.getLevel())).append('[');
+        appendTimestamp(message, text).append("] ");
+        appendPretext(message, text, PRETEXT_OPEN, PRETEXT_CLOSE).append(" <a href='");
+        appendUrl(message, text).append("'>View</a>\n");
+        return appendText(message, text);
+    }
+
+    /**
+     * Write message with text.
+     *
+     * @param text StringBuilder
+     * @param json JsonGenerator
+     * @throws IOException Exception
+     */
+    private void writeMessage(final StringBuilder text, final JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("chat_id", channel);
+        writeText(json, "text", text);
+        json.writeStringField("disable_notification", "false");
+        json.writeStringField("parse_mode", "html");
+        json.writeEndObject();
+    }
+
+    /**
+     * Get throttle pause from response, Telegram sends it in body parameters.
+     *
+     * @param response Response
+     * @return long millis
+     */
+    @Override
+    protected long getRetryAfter(final Response response) {
+        try {
+            final JsonNode retryAfter = MAPPER.readTree(response.getBody()).path("parameters").path("retry_after");
+            if (retryAfter.isNumber()) {
+                return TimeUnit.SECONDS.toMillis(retryAfter.asLong());
+            }
+        } catch (final Exception e) {
+            logger.warning(String.format("Could not parse Telegram response: %s", e.getMessage()));
+        }
+        return super.getRetryAfter(response);
     }
 
     /**
      * Get message emoji.
      *
-     * @param message Message
+     * @param level int
      * @return String
      */
-    private String getEmoji(final Message message) {
-        switch (MessageHelper.getLevel(message)) {
+    private String getEmoji(final int level) {
+        switch (level) {
             case 0:
             case 1:
             case 2:
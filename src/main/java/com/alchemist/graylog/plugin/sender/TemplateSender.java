@@ -0,0 +1,118 @@
+package com.alchemist.graylog.plugin.sender;
+
+import com.alchemist.graylog.plugin.template.PayloadTemplate;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import org.graylog2.plugin.streams.Stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class TemplateSender.
+ * <p>
+ * Renders payload by user template instead of sender layout, delivery is done by wrapped sender.
+ *
+ * @author Alchemist
+ */
+public final class TemplateSender implements ISender {
+    private static final int BUFFER_SIZE = 4 * 1024;
+    private static final int BUFFER_SIZE_MAX = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_SIZE));
+
+    private final PayloadTemplate template;
+    private final ISender sender;
+    private final Stream stream;
+    private final String graylogUrl;
+
+    /**
+     * Constructor.
+     *
+     * @param template   PayloadTemplate
+     * @param sender     ISender
+     * @param stream     Stream
+     * @param graylogUrl String
+     */
+    public TemplateSender(final PayloadTemplate template, final ISender sender, final Stream stream,
+                          final String graylogUrl) {
+        this.template = template;
+        this.sender = sender;
+        this.stream = stream;
+        this.graylogUrl = graylogUrl;
+    }
+
+    /**
+     * Perform notification.
+     *
+     * @param notification Notification
+     * @throws Exception Exception
+     */
+    @Override
+    public void perform(final Notification notification) throws Exception {
+        deliver(render(notification));
+    }
+
+    /**
+     * Render notification payload by template.
+     *
+     * @param notification Notification
+     * @return byte[]
+     * @throws Exception Exception
+     */
+    @Override
+    public byte[] render(final Notification notification) throws Exception {
+        StringBuilder buf = BUFFERS.get();
+        if (buf.capacity() > BUFFER_SIZE_MAX) {
+            buf = new StringBuilder(BUFFER_SIZE);
+            BUFFERS.set(buf);
+        }
+        buf.setLength(0);
+        return template.render(notification.getMessage(), notification.getLevel(), stream, graylogUrl, buf)
+                .toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Render each notification into own payload, template defines the whole body.
+     *
+     * @param batch List of Notification
+     * @return List of byte[]
+     * @throws Exception Exception
+     */
+    @Override
+    public List<byte[]> pack(final List<Notification> batch) throws Exception {
+        final List<byte[]> payloads = new ArrayList<>(batch.size());
+        for (final Notification notification : batch) {
+            payloads.add(render(notification));
+        }
+        return payloads;
+    }
+
+    /**
+     * Deliver rendered payload.
+     *
+     * @param payload byte[]
+     * @throws SendException Exception
+     */
+    @Override
+    public void deliver(final byte[] payload) throws SendException {
+        sender.deliver(payload);
+    }
+
+    /**
+     * Get endpoint of wrapped sender.
+     *
+     * @return Endpoint
+     */
+    @Override
+    public Endpoint getEndpoint() {
+        return sender.getEndpoint();
+    }
+
+    /**
+     * Stop wrapped sender.
+     */
+    @Override
+    public void stop() {
+        sender.stop();
+    }
+}
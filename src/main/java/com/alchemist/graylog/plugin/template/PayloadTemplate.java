@@ -0,0 +1,370 @@
+package com.alchemist.graylog.plugin.template;
+
+import com.alchemist.graylog.plugin.helpers.MessageHelper;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Class PayloadTemplate.
+ * <p>
+ * User defined payload body, parsed once into segment tree and rendered per message without reparsing:
+ * <ul>
+ * <li>{@code ${field}} - message field value, JSON string escaped</li>
+ * <li>{@code ${field:100}} - value cut to 100 chars with "..."</li>
+ * <li>{@code ${#field}...${/field}} - rendered when field is set and not empty</li>
+ * <li>{@code ${^field}...${/field}} - rendered when field is not set or empty</li>
+ * <li>{@code ${@url}}, {@code ${@timestamp}}, {@code ${@level}}, {@code ${@stream}} - built-in values</li>
+ * <li>$${ - literal "${"</li>
+ * </ul>
+ *
+ * @author Alchemist
+ */
+public final class PayloadTemplate {
+    private static final String OPEN = "${";
+    private static final String CLOSE = "}";
+    private static final String ELLIPSIS = "...";
+
+    private final List<Segment> segments;
+
+    /**
+     * Constructor.
+     *
+     * @param segments List
+     */
+    private PayloadTemplate(final List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Parse template.
+     *
+     * @param template String
+     * @return PayloadTemplate
+     * @throws IllegalArgumentException on syntax error
+     */
+    public static PayloadTemplate compile(final String template) throws IllegalArgumentException {
+        final Deque<Section> sections = new ArrayDeque<>();
+        List<Segment> current = new ArrayList<>();
+        final List<Segment> root = current;
+        final StringBuilder literal = new StringBuilder();
+
+        int pos = 0;
+        while (pos < template.length()) {
+            final int open = template.indexOf(OPEN, pos);
+            if (open < 0) {
+                literal.append(template, pos, template.length());
+                break;
+            }
+
+            // Escaped "$${"
+            if (open > pos && template.charAt(open - 1) == '$') {
+                literal.append(template, pos, open - 1).append(OPEN);
+                pos = open + OPEN.length();
+                continue;
+            }
+
+            literal.append(template, pos, open);
+            final int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException(String.format("Unclosed placeholder at %s", open));
+            }
+            final String tag = template.substring(open + OPEN.length(), close).trim();
+            if (tag.length() < 1) {
+                throw new IllegalArgumentException(String.format("Empty placeholder at %s", open));
+            }
+            pos = close + CLOSE.length();
+
+            if (literal.length() > 0) {
+                current.add(new Literal(literal.toString()));
+                literal.setLength(0);
+            }
+
+            final char kind = tag.charAt(0);
+            if (kind == '#' || kind == '^') {
+                final Section section = new Section(tag.substring(1).trim(), getValue(tag.substring(1).trim()), kind == '^');
+                current.add(section);
+                sections.push(section);
+                current = section.children;
+            } else if (kind == '/') {
+                final String name = tag.substring(1).trim();
+                if (sections.isEmpty() || !sections.peek().name.equals(name)) {
+                    throw new IllegalArgumentException(String.format("Unexpected section end \"%s\" at %s", name, open));
+                }
+                sections.pop();
+                current = sections.isEmpty() ? root : sections.peek().children;
+            } else {
+                current.add(getPlaceholder(tag));
+            }
+        }
+
+        if (!sections.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Unclosed section \"%s\"", sections.peek().name));
+        }
+        if (literal.length() > 0) {
+            current.add(new Literal(literal.toString()));
+        }
+
+        return new PayloadTemplate(root);
+    }
+
+    /**
+     * Render message.
+     *
+     * @param message    Message
+     * @param level      int parsed message level
+     * @param stream     Stream
+     * @param graylogUrl String
+     * @param buf        StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder render(final Message message, final int level, final Stream stream, final String graylogUrl,
+                                final StringBuilder buf) {
+        final Context context = new Context(message, level, stream, graylogUrl);
+        for (final Segment segment : segments) {
+            segment.render(context, buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Parse placeholder "name" or "name:limit".
+     *
+     * @param tag String
+     * @return Segment
+     */
+    private static Segment getPlaceholder(final String tag) {
+        final int colon = tag.lastIndexOf(':');
+        if (colon < 0) {
+            return new Placeholder(getValue(tag), 0);
+        }
+
+        final int limit;
+        try {
+            limit = Integer.parseInt(tag.substring(colon + 1).trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Wrong limit of \"%s\"", tag));
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Wrong limit of \"%s\"", tag));
+        }
+        return new Placeholder(getValue(tag.substring(0, colon).trim()), limit);
+    }
+
+    /**
+     * Resolve value name once.
+     *
+     * @param name String
+     * @return Value
+     */
+    private static Value getValue(final String name) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty field name");
+        }
+        if (name.charAt(0) != '@') {
+            return context -> {
+                final Object value = context.message.getField(name);
+                return value == null ? null : value.toString();
+            };
+        }
+
+        switch (name) {
+            case "@url":
+                return context -> MessageHelper.appendURL(new StringBuilder(), context.graylogUrl, context.stream, context.message);
+            case "@timestamp":
+                return context -> DateTimeFormat.mediumDateTime().withZone(DateTimeZone.getDefault()).print(context.message.getTimestamp());
+            case "@level":
+                return context -> Integer.toString(context.level);
+            case "@stream":
+                return context -> context.stream.getTitle();
+        }
+        throw new IllegalArgumentException(String.format("Unknown built-in value \"%s\"", name));
+    }
+
+    /**
+     * Append value as JSON string content, cut by limit.
+     *
+     * @param buf   StringBuilder
+     * @param value CharSequence
+     * @param limit int 0 for no limit
+     */
+    private static void appendJson(final StringBuilder buf, final CharSequence value, final int limit) {
+        int end = value.length();
+        final boolean cut = limit > 0 && end > limit;
+        if (cut) {
+            end = Character.isHighSurrogate(value.charAt(limit - 1)) ? limit - 1 : limit;
+        }
+
+        for (int i = 0; i < end; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buf.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        buf.append(c);
+                    }
+            }
+        }
+
+        if (cut) {
+            buf.append(ELLIPSIS);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class Context.
+     */
+    private static final class Context {
+        private final Message message;
+        private final int level;
+        private final Stream stream;
+        private final String graylogUrl;
+
+        /**
+         * Constructor.
+         *
+         * @param message    Message
+         * @param level      int
+         * @param stream     Stream
+         * @param graylogUrl String
+         */
+        private Context(final Message message, final int level, final Stream stream, final String graylogUrl) {
+            this.message = message;
+            this.level = level;
+            this.stream = stream;
+            this.graylogUrl = graylogUrl;
+        }
+    }
+
+    /**
+     * Interface Value.
+     */
+    private interface Value {
+        /**
+         * Get value.
+         *
+         * @param context Context
+         * @return CharSequence or null if not set
+         */
+        CharSequence get(final Context context);
+    }
+
+    /**
+     * Interface Segment.
+     */
+    private interface Segment {
+        /**
+         * Render segment.
+         *
+         * @param context Context
+         * @param buf     StringBuilder
+         */
+        void render(final Context context, final StringBuilder buf);
+    }
+
+    /**
+     * Class Literal.
+     */
+    private static final class Literal implements Segment {
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param text String
+         */
+        private Literal(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(final Context context, final StringBuilder buf) {
+            buf.append(text);
+        }
+    }
+
+    /**
+     * Class Placeholder.
+     */
+    private static final class Placeholder implements Segment {
+        private final Value value;
+        private final int limit;
+
+        /**
+         * Constructor.
+         *
+         * @param value Value
+         * @param limit int
+         */
+        private Placeholder(final Value value, final int limit) {
+            this.value = value;
+            this.limit = limit;
+        }
+
+        @Override
+        public void render(final Context context, final StringBuilder buf) {
+            final CharSequence text = value.get(context);
+            if (text != null) {
+                appendJson(buf, text, limit);
+            }
+        }
+    }
+
+    /**
+     * Class Section.
+     */
+    private static final class Section implements Segment {
+        private final String name;
+        private final Value value;
+        private final boolean inverted;
+        private final List<Segment> children = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param name     String
+         * @param value    Value
+         * @param inverted boolean
+         */
+        private Section(final String name, final Value value, final boolean inverted) {
+            this.name = name;
+            this.value = value;
+            this.inverted = inverted;
+        }
+
+        @Override
+        public void render(final Context context, final StringBuilder buf) {
+            final CharSequence text = value.get(context);
+            if ((text != null && text.length() > 0) != inverted) {
+                for (final Segment child : children) {
+                    child.render(context, buf);
+                }
+            }
+        }
+    }
+}
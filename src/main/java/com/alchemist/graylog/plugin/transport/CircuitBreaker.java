@@ -0,0 +1,218 @@
+package com.alchemist.graylog.plugin.transport;
+
+/**
+ * Class CircuitBreaker.
+ * <p>
+ * Breaker of one webhook endpoint, shared by all outputs posting to it. Opens when error rate of recent requests
+ * or count of timeouts in a row reaches its limit, while open requests fail at once. After open time
+ * limited count of probe requests is let through, breaker closes when all of them succeed and opens again
+ * on the first failed probe.
+ *
+ * @author Alchemist
+ */
+public final class CircuitBreaker {
+    private static final int WINDOW = 20; // recent requests
+    private static final int MIN_CALLS = 10; // requests before error rate is checked
+
+    private final int errorRate;
+    private final int timeouts;
+    private final long openTime;
+    private final int probes;
+
+    private final boolean[] outcomes = new boolean[WINDOW];
+    private int calls;
+    private int cursor;
+    private int failures;
+    private int timeoutsInRow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probesPassed;
+
+    /**
+     * Constructor.
+     *
+     * @param errorRate int percent of failed recent requests, 0 disables
+     * @param timeouts  int timeouts in a row, 0 disables
+     * @param openTime  int sec
+     * @param probes    int probe requests in half-open state
+     */
+    public CircuitBreaker(final int errorRate, final int timeouts, final int openTime, final int probes) {
+        this.errorRate = errorRate;
+        this.timeouts = timeouts;
+        this.openTime = openTime * 1000L; // sec to millis
+        this.probes = Math.max(1, probes);
+    }
+
+    /**
+     * Is request allowed, allowed request must end with success, failure or cancel.
+     *
+     * @return boolean
+     */
+    public synchronized boolean allow() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openTime) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probesPassed = 0;
+                // Open time is over, request is a probe
+            default:
+                if (probesInFlight >= probes) {
+                    return false;
+                }
+                probesInFlight++;
+                return true;
+        }
+    }
+
+    /**
+     * Record successful request.
+     */
+    public synchronized void onSuccess() {
+        switch (state) {
+            case CLOSED:
+                timeoutsInRow = 0;
+                record(false);
+                break;
+            case HALF_OPEN:
+                if (probesInFlight > 0) {
+                    probesInFlight--;
+                }
+                if (++probesPassed >= probes) {
+                    close();
+                }
+                break;
+            default:
+                // Late result of request sent before breaker opened
+        }
+    }
+
+    /**
+     * Record failed request.
+     *
+     * @param timeout boolean request timed out
+     */
+    public synchronized void onFailure(final boolean timeout) {
+        switch (state) {
+            case CLOSED:
+                if (timeout) {
+                    timeoutsInRow++;
+                }
+                record(true);
+                if ((timeouts > 0 && timeoutsInRow >= timeouts)
+                        || (errorRate > 0 && calls >= MIN_CALLS && failures * 100 >= errorRate * calls)) {
+                    open();
+                }
+                break;
+            case HALF_OPEN:
+                open();
+                break;
+            default:
+                // Late result of request sent before breaker opened
+        }
+    }
+
+    /**
+     * Return permit of request which was not sent.
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * Get state.
+     *
+     * @return State
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Get time until probes are let through.
+     *
+     * @return long millis, 0 if breaker is not open
+     */
+    public synchronized long getRemaining() {
+        return state == State.OPEN ? Math.max(0, openedAt + openTime - System.currentTimeMillis()) : 0;
+    }
+
+    /**
+     * Record outcome in window of recent requests.
+     *
+     * @param failure boolean
+     */
+    private void record(final boolean failure) {
+        if (calls == WINDOW) {
+            if (outcomes[cursor]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[cursor] = failure;
+        if (failure) {
+            failures++;
+        }
+        cursor = (cursor + 1) % WINDOW;
+    }
+
+    /**
+     * Open breaker.
+     */
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Close breaker with clean window.
+     */
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        cursor = 0;
+        failures = 0;
+        timeoutsInRow = 0;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Enum State.
+     */
+    public enum State {
+        CLOSED(0),
+        HALF_OPEN(1),
+        OPEN(2);
+
+        private final int code;
+
+        /**
+         * Constructor.
+         *
+         * @param code int
+         */
+        State(final int code) {
+            this.code = code;
+        }
+
+        /**
+         * Get metric code.
+         *
+         * @return int
+         */
+        public int getCode() {
+            return code;
+        }
+    }
+}
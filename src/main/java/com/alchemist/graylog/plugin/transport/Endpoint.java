@@ -0,0 +1,139 @@
+package com.alchemist.graylog.plugin.transport;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class Endpoint.
+ * <p>
+ * Lease of webhook endpoint taken by one sender: transport, rate limiter, health and circuit breaker are shared with other leases
+ * of the same sender type and URL and are released by registry when the last lease is released.
+ *
+ * @author Alchemist
+ */
+public final class Endpoint {
+    private final String key;
+    private final String transportKey;
+    private final ITransport transport;
+    private final State state;
+    private final EndpointRegistry registry;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Constructor of endpoint not shared by registry.
+     *
+     * @param transport ITransport
+     */
+    public Endpoint(final ITransport transport) {
+        this(null, null, transport, new State(new CircuitBreaker(0, 0, 0, 1)), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param key          String
+     * @param transportKey String
+     * @param transport    ITransport
+     * @param state        State
+     * @param registry     EndpointRegistry
+     */
+    Endpoint(final String key, final String transportKey, final ITransport transport, final State state,
+             final EndpointRegistry registry) {
+        this.key = key;
+        this.transportKey = transportKey;
+        this.transport = transport;
+        this.state = state;
+        this.registry = registry;
+    }
+
+    /**
+     * Get transport.
+     *
+     * @return ITransport
+     */
+    public ITransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Get rate limiter, created by first caller.
+     *
+     * @param rate  double permits per sec, used by first caller
+     * @param burst int max permits at once, used by first caller
+     * @return RateLimiter
+     */
+    public RateLimiter getLimiter(final double rate, final int burst) {
+        synchronized (state) {
+            if (state.limiter == null) {
+                state.limiter = new RateLimiter(rate, burst);
+            }
+            return state.limiter;
+        }
+    }
+
+    /**
+     * Get health.
+     *
+     * @return EndpointHealth
+     */
+    public EndpointHealth getHealth() {
+        return state.health;
+    }
+
+    /**
+     * Get circuit breaker.
+     *
+     * @return CircuitBreaker
+     */
+    public CircuitBreaker getBreaker() {
+        return state.breaker;
+    }
+
+    /**
+     * Release lease, repeated calls are ignored.
+     */
+    public void release() {
+        if (registry != null && released.compareAndSet(false, true)) {
+            registry.release(this);
+        }
+    }
+
+    /**
+     * Get key.
+     *
+     * @return String
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Get transport key.
+     *
+     * @return String
+     */
+    String getTransportKey() {
+        return transportKey;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class State.
+     */
+    static final class State {
+        private final EndpointHealth health = new EndpointHealth();
+        private final CircuitBreaker breaker;
+        private RateLimiter limiter;
+        int refs;
+
+        /**
+         * Constructor.
+         *
+         * @param breaker CircuitBreaker
+         */
+        State(final CircuitBreaker breaker) {
+            this.breaker = breaker;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.alchemist.graylog.plugin.transport;
+
+/**
+ * Class EndpointHealth.
+ * <p>
+ * Delivery state of one webhook endpoint, shared by all outputs posting to it.
+ *
+ * @author Alchemist
+ */
+public final class EndpointHealth {
+    private volatile int failures;
+    private volatile int lastStatus;
+    private volatile long lastSuccess;
+    private volatile long lastFailure;
+
+    /**
+     * Record successful request.
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        lastStatus = 200;
+        lastSuccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Record failed request.
+     *
+     * @param status int HTTP status, 0 for network error
+     */
+    public synchronized void onFailure(final int status) {
+        failures++;
+        lastStatus = status;
+        lastFailure = System.currentTimeMillis();
+    }
+
+    /**
+     * Get failures in a row.
+     *
+     * @return int
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Get last HTTP status.
+     *
+     * @return int 0 if none or network error
+     */
+    public int getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * Get last success time.
+     *
+     * @return long millis, 0 if none
+     */
+    public long getLastSuccess() {
+        return lastSuccess;
+    }
+
+    /**
+     * Get last failure time.
+     *
+     * @return long millis, 0 if none
+     */
+    public long getLastFailure() {
+        return lastFailure;
+    }
+}
@@ -0,0 +1,111 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.alchemist.graylog.plugin.GraylogOutputCarrierConfig;
+import com.google.inject.Singleton;
+import org.graylog2.plugin.configuration.Configuration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Class EndpointRegistry.
+ * <p>
+ * Node-wide registry of webhook endpoints shared by all outputs. Rate limiter, health and circuit breaker are kept
+ * per sender type and URL, breaker settings of the first output are used, transport and its connection pool per transport settings. Both are reference counted
+ * by leases and dropped, pool closed, when the last lease is released.
+ *
+ * @author Alchemist
+ */
+@Singleton
+public final class EndpointRegistry {
+    private static final Logger logger = Logger.getLogger(EndpointRegistry.class.getSimpleName());
+
+    private final Map<String, Endpoint.State> states = new HashMap<>();
+    private final Map<String, SharedTransport> transports = new HashMap<>();
+
+    /**
+     * Acquire endpoint lease.
+     *
+     * @param senderType    String
+     * @param webhookUrl    String
+     * @param configuration Configuration with transport settings
+     * @return Endpoint
+     * @throws Exception Exception
+     */
+    public synchronized Endpoint acquire(final String senderType, final String webhookUrl,
+                                         final Configuration configuration) throws Exception {
+        final String transportKey = TransportFactory.getTransportKey(configuration);
+        SharedTransport transport = transports.get(transportKey);
+        if (transport == null) {
+            transport = new SharedTransport(TransportFactory.getTransport(configuration));
+            transports.put(transportKey, transport);
+        }
+        transport.refs++;
+
+        final String key = senderType + " " + webhookUrl;
+        final Endpoint.State state = states.computeIfAbsent(key, k -> new Endpoint.State(new CircuitBreaker(
+                GraylogOutputCarrierConfig.getBreakerErrorRate(configuration),
+                GraylogOutputCarrierConfig.getBreakerTimeouts(configuration),
+                GraylogOutputCarrierConfig.getBreakerOpenTime(configuration),
+                GraylogOutputCarrierConfig.getBreakerProbes(configuration))));
+        state.refs++;
+
+        return new Endpoint(key, transportKey, transport.transport, state, this);
+    }
+
+    /**
+     * Get count of shared endpoints.
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return states.size();
+    }
+
+    /**
+     * Release endpoint lease.
+     *
+     * @param endpoint Endpoint
+     */
+    synchronized void release(final Endpoint endpoint) {
+        final Endpoint.State state = states.get(endpoint.getKey());
+        if (state != null && --state.refs <= 0) {
+            states.remove(endpoint.getKey());
+        }
+
+        final SharedTransport transport = transports.get(endpoint.getTransportKey());
+        if (transport != null && --transport.refs <= 0) {
+            transports.remove(endpoint.getTransportKey());
+            if (transport.transport instanceof Closeable) {
+                try {
+                    ((Closeable) transport.transport).close();
+                } catch (final IOException e) {
+                    logger.warning(String.format("Could not close transport: %s", e.getMessage()));
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class SharedTransport.
+     */
+    private static final class SharedTransport {
+        private final ITransport transport;
+        private int refs;
+
+        /**
+         * Constructor.
+         *
+         * @param transport ITransport
+         */
+        private SharedTransport(final ITransport transport) {
+            this.transport = transport;
+        }
+    }
+}
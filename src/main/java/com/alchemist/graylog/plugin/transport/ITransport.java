@@ -0,0 +1,37 @@
+package com.alchemist.graylog.plugin.transport;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Interface ITransport.
+ *
+ * @author Alchemist
+ */
+public interface ITransport {
+
+    /**
+     * POST body to URL.
+     *
+     * @param url         URL
+     * @param contentType String
+     * @param body        byte[]
+     * @return Response
+     * @throws IOException Exception
+     */
+    default Response post(final URL url, final String contentType, final byte[] body) throws IOException {
+        return post(url, contentType, null, body);
+    }
+
+    /**
+     * POST encoded body to URL.
+     *
+     * @param url             URL
+     * @param contentType     String
+     * @param contentEncoding String, e.g. gzip, null if body is not encoded
+     * @param body            byte[]
+     * @return Response
+     * @throws IOException Exception
+     */
+    Response post(final URL url, final String contentType, final String contentEncoding, final byte[] body) throws IOException;
+}
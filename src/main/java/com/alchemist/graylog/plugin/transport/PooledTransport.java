@@ -0,0 +1,126 @@
+package com.alchemist.graylog.plugin.transport;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class PooledTransport.
+ * <p>
+ * Apache HttpClient transport with persistent pooled connections. One SSL context is shared by the pool,
+ * so new connections to the same host resume the cached TLS session instead of a full handshake.
+ *
+ * @author Alchemist
+ */
+public final class PooledTransport implements ITransport, Closeable {
+    public static final String TAG = "HttpClient";
+
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final int MAX_TOTAL = 200;
+    private static final int VALIDATE_AFTER_INACTIVITY = 2000; // millis
+    private static final long MAX_IDLE_TIME = 30; // sec
+
+    private final PoolingHttpClientConnectionManager manager;
+    private final CloseableHttpClient client;
+
+    /**
+     * Constructor.
+     *
+     * @param poolSize       int connections per route
+     * @param connectTimeout int millis
+     * @param readTimeout    int millis
+     * @param requestTimeout int millis to lease connection from pool
+     */
+    public PooledTransport(final int poolSize, final int connectTimeout, final int readTimeout, final int requestTimeout) {
+        final SSLConnectionSocketFactory sslFactory = new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+                SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+
+        this.manager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslFactory)
+                .build());
+        this.manager.setDefaultMaxPerRoute(poolSize);
+        this.manager.setMaxTotal(Math.max(MAX_TOTAL, poolSize));
+        this.manager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(readTimeout)
+                        .setConnectionRequestTimeout(requestTimeout)
+                        .build())
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                // Connections are not bound to user state, so every pooled connection is reusable
+                .disableConnectionState()
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_TIME, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * POST encoded body to URL.
+     *
+     * @param url             URL
+     * @param contentType     String
+     * @param contentEncoding String, may be null
+     * @param body            byte[]
+     * @return Response
+     * @throws IOException Exception
+     */
+    @Override
+    public Response post(final URL url, final String contentType, final String contentEncoding,
+                         final byte[] body) throws IOException {
+        final HttpPost request;
+        try {
+            request = new HttpPost(url.toURI());
+        } catch (final URISyntaxException e) {
+            throw new IOException(String.format("Wrong URL: %s", url), e);
+        }
+        final ByteArrayEntity payload = new ByteArrayEntity(body, ContentType.create(contentType, StandardCharsets.UTF_8));
+        payload.setContentEncoding(contentEncoding);
+        request.setEntity(payload);
+
+        try (final CloseableHttpResponse response = client.execute(request)) {
+            final HttpEntity entity = response.getEntity();
+            // Consuming entity returns connection to pool
+            final String content = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+            final Header retryAfter = response.getFirstHeader(RETRY_AFTER);
+            return new Response(response.getStatusLine().getStatusCode(), content,
+                    retryAfter != null ? retryAfter.getValue() : null);
+        }
+    }
+
+    /**
+     * Close client and pool.
+     *
+     * @throws IOException Exception
+     */
+    @Override
+    public void close() throws IOException {
+        client.close();
+        manager.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.alchemist.graylog.plugin.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class RateLimiter.
+ * <p>
+ * Token bucket shared by all senders of one webhook endpoint. Throttle response halves the rate and pauses
+ * the bucket for retry-after, every success restores a part of the default rate.
+ *
+ * @author Alchemist
+ */
+public final class RateLimiter {
+
+    private static final double MIN_RATE = 0.05; // permits per sec
+    private static final double RECOVERY = 0.1; // part of default rate restored per success
+    private static final long NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double defaultRate;
+    private final double burst;
+
+    private double rate;
+    private double tokens;
+    private long refilled;
+    private long blockedUntil;
+
+    /**
+     * Constructor.
+     *
+     * @param rate  double permits per sec
+     * @param burst int max permits at once
+     */
+    public RateLimiter(final double rate, final int burst) {
+        this.defaultRate = rate;
+        this.burst = burst;
+        this.rate = rate;
+        this.tokens = burst;
+        this.refilled = System.nanoTime();
+        this.blockedUntil = refilled;
+    }
+
+    /**
+     * Wait for permit.
+     *
+     * @throws InterruptedException Exception
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = reserve()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Endpoint returned throttle response.
+     *
+     * @param retryAfter long millis
+     */
+    public synchronized void onThrottled(final long retryAfter) {
+        final long now = System.nanoTime();
+        blockedUntil = Math.max(blockedUntil, now + TimeUnit.MILLISECONDS.toNanos(retryAfter));
+        refilled = Math.max(refilled, blockedUntil);
+        rate = Math.max(MIN_RATE, rate / 2);
+        tokens = 0;
+    }
+
+    /**
+     * Endpoint accepted request.
+     */
+    public synchronized void onSuccess() {
+        if (rate < defaultRate) {
+            rate = Math.min(defaultRate, rate + defaultRate * RECOVERY);
+        }
+    }
+
+    /**
+     * Get current rate.
+     *
+     * @return double permits per sec
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Take permit.
+     *
+     * @return long nanos to wait, 0 if permit is taken
+     */
+    private synchronized long reserve() {
+        final long now = System.nanoTime();
+        if (now < blockedUntil) {
+            return blockedUntil - now;
+        }
+
+        if (now > refilled) {
+            tokens = Math.min(burst, tokens + (now - refilled) * rate / NANOS);
+            refilled = now;
+        }
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * NANOS / rate);
+    }
+}
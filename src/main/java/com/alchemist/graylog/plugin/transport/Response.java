@@ -0,0 +1,53 @@
+package com.alchemist.graylog.plugin.transport;
+
+/**
+ * Class Response.
+ *
+ * @author Alchemist
+ */
+public final class Response {
+
+    private final int status;
+    private final String body;
+    private final String retryAfter;
+
+    /**
+     * Constructor.
+     *
+     * @param status     int
+     * @param body       String
+     * @param retryAfter String Retry-After header, may be null
+     */
+    public Response(final int status, final String body, final String retryAfter) {
+        this.status = status;
+        this.body = body;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Get HTTP status.
+     *
+     * @return int
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get response body.
+     *
+     * @return String
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Get Retry-After header.
+     *
+     * @return String
+     */
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,78 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.alchemist.graylog.plugin.GraylogOutputCarrierConfig;
+import org.graylog2.plugin.configuration.Configuration;
+
+/**
+ * Class TransportFactory.
+ * <p>
+ * Transports are shared by all outputs with the same settings through {@link EndpointRegistry}, so connection pools
+ * are reused across streams.
+ *
+ * @author Alchemist
+ */
+public final class TransportFactory {
+
+    /**
+     * Constructor.
+     */
+    private TransportFactory() {
+    }
+
+    /**
+     * Get Transport by type.
+     *
+     * @param type           String
+     * @param poolSize       int
+     * @param connectTimeout int
+     * @param readTimeout    int
+     * @param requestTimeout int
+     * @return ITransport
+     * @throws Exception Exception
+     */
+    public static ITransport getTransport(final String type, final int poolSize, final int connectTimeout,
+                                          final int readTimeout, final int requestTimeout) throws Exception {
+        if (type == null || type.isEmpty()) {
+            throw new Exception("Transport type is wrong");
+        }
+
+        if (type.equalsIgnoreCase(PooledTransport.TAG)) {
+            return new PooledTransport(poolSize, connectTimeout, readTimeout, requestTimeout);
+        }
+
+        if (type.equalsIgnoreCase(UrlConnectionTransport.TAG)) {
+            return new UrlConnectionTransport(connectTimeout, readTimeout);
+        }
+
+        throw new Exception("Unsupported Transport type");
+    }
+
+    /**
+     * Build Transport.
+     *
+     * @param configuration Configuration
+     * @return ITransport
+     * @throws Exception Exception
+     */
+    public static ITransport getTransport(final Configuration configuration) throws Exception {
+        return getTransport(GraylogOutputCarrierConfig.getTransportType(configuration),
+                GraylogOutputCarrierConfig.getPoolSize(configuration),
+                GraylogOutputCarrierConfig.getConnectTimeout(configuration),
+                GraylogOutputCarrierConfig.getReadTimeout(configuration),
+                GraylogOutputCarrierConfig.getRequestTimeout(configuration));
+    }
+
+    /**
+     * Get key of transport settings, transports with the same key are interchangeable.
+     *
+     * @param configuration Configuration
+     * @return String
+     */
+    public static String getTransportKey(final Configuration configuration) {
+        return String.format("%s:%s:%s:%s:%s", GraylogOutputCarrierConfig.getTransportType(configuration),
+                GraylogOutputCarrierConfig.getPoolSize(configuration),
+                GraylogOutputCarrierConfig.getConnectTimeout(configuration),
+                GraylogOutputCarrierConfig.getReadTimeout(configuration),
+                GraylogOutputCarrierConfig.getRequestTimeout(configuration));
+    }
+}
@@ -0,0 +1,75 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Class UrlConnectionTransport.
+ * <p>
+ * Plain JDK transport, connection reuse depends on JDK keep-alive.
+ *
+ * @author Alchemist
+ */
+public final class UrlConnectionTransport implements ITransport {
+    public static final String TAG = "UrlConnection";
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    /**
+     * Constructor.
+     *
+     * @param connectTimeout int millis
+     * @param readTimeout    int millis
+     */
+    public UrlConnectionTransport(final int connectTimeout, final int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * POST encoded body to URL.
+     *
+     * @param url             URL
+     * @param contentType     String
+     * @param contentEncoding String, may be null
+     * @param body            byte[]
+     * @return Response
+     * @throws IOException Exception
+     */
+    @Override
+    public Response post(final URL url, final String contentType, final String contentEncoding,
+                         final byte[] body) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        conn.setDoOutput(true);
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", contentType);
+        if (contentEncoding != null) {
+            conn.setRequestProperty("Content-Encoding", contentEncoding);
+        }
+        conn.setFixedLengthStreamingMode(body.length);
+
+        try (final OutputStream output = conn.getOutputStream()) {
+            output.write(body);
+        }
+
+        final int status = conn.getResponseCode();
+        final String retryAfter = conn.getHeaderField(RETRY_AFTER);
+        try (final InputStream input = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            if (input == null) {
+                return new Response(status, "", retryAfter);
+            }
+            return new Response(status, new String(ByteStreams.toByteArray(input), Charsets.UTF_8), retryAfter);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.alchemist.graylog.plugin.audit;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.metrics.SkipReason;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class AuditRingTest extends AbstractTest {
+
+    @Test
+    public void testNewestFirst() {
+        final AuditRing ring = new AuditRing();
+        ring.add(new AuditRecord("a", "1", SkipReason.LEVEL, "7 < 3"));
+        ring.add(new AuditRecord("b", "2", SkipReason.GRACE, null));
+        ring.add(new AuditRecord("a", "3", SkipReason.IGNORE, "facility:info ~ info"));
+
+        final List<AuditRecord> all = ring.getRecent(null, 10);
+        assertEquals(3, all.size());
+        assertEquals("3", all.get(0).getMessageId());
+        assertEquals("1", all.get(2).getMessageId());
+
+        final List<AuditRecord> stream = ring.getRecent("a", 1);
+        assertEquals(1, stream.size());
+        assertEquals(SkipReason.IGNORE, stream.get(0).getReason());
+    }
+
+    @Test
+    public void testPermittedStreams() {
+        final AuditRing ring = new AuditRing();
+        ring.add(new AuditRecord("a", "1", SkipReason.LEVEL, null));
+        ring.add(new AuditRecord("b", "2", SkipReason.LEVEL, null));
+        ring.add(new AuditRecord("a", "3", SkipReason.LEVEL, null));
+
+        final List<AuditRecord> permitted = ring.getRecent(null, 10, "a"::equals);
+        assertEquals(2, permitted.size());
+        assertEquals("3", permitted.get(0).getMessageId());
+        assertEquals("1", permitted.get(1).getMessageId());
+    }
+
+    @Test
+    public void testOverwriteOldest() {
+        final AuditRing ring = new AuditRing();
+        for (int i = 0; i < 3000; i++) {
+            ring.add(new AuditRecord("a", Integer.toString(i), SkipReason.DUPLICATE, null));
+        }
+
+        final List<AuditRecord> all = ring.getRecent(null, Integer.MAX_VALUE);
+        assertTrue(all.size() <= 1024);
+        assertEquals("2999", all.get(0).getMessageId());
+        assertEquals(Integer.toString(3000 - all.size()), all.get(all.size() - 1).getMessageId());
+    }
+}
@@ -0,0 +1,123 @@
+package com.alchemist.graylog.plugin.digest;
+
+import com.alchemist.graylog.plugin.dispatch.Dispatcher;
+import com.alchemist.graylog.plugin.dispatch.OverflowPolicy;
+import com.alchemist.graylog.plugin.dispatch.RetryScheduler;
+import com.alchemist.graylog.plugin.dispatch.Target;
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.helpers.StubSender;
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.sender.Notification;
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class DigestTest extends AbstractTest {
+    private static final Pattern TOTAL = Pattern.compile("^Suppressed (\\d+) messages");
+    private static final int WAIT = 3600;
+
+    @Mock
+    private Message message;
+
+    private StubSender sender;
+    private RetryScheduler retry;
+    private Dispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        when(message.getSource()).thenReturn("db1");
+        when(message.getField("app")).thenReturn("billing");
+
+        final OutputMetrics metrics = new OutputMetrics(new MetricRegistry(), "test");
+        sender = new StubSender(0);
+        retry = new RetryScheduler("test", 10, 60, 1000, metrics);
+        dispatcher = new Dispatcher("test", Collections.singletonList(new Target("stub", sender, null)),
+                1000, 0, 1, 100000, 100, 80, 4, 1, OverflowPolicy.DROP_NEWEST, retry, metrics);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.stop();
+        retry.stop();
+    }
+
+    @Test
+    public void testSummary() throws Exception {
+        final Digest digest = new Digest("test", "app", WAIT, dispatcher);
+        digest.add(message, 4);
+        digest.add(message, 3);
+        digest.add(message, 4);
+        digest.flush();
+        digest.stop();
+
+        assertTrue(sender.await(1, 5000));
+        assertEquals(1, sender.getRendered().size());
+        final Notification summary = sender.getRendered().get(0);
+        assertEquals(3, summary.getLevel());
+        assertEquals(Digest.SOURCE, summary.getMessage().getSource());
+        assertEquals("Suppressed 3 messages in 3600 sec. Levels: 3=1, 4=2. Sources: db1=3. app: billing=3.",
+                summary.getMessage().getMessage());
+    }
+
+    @Test
+    public void testEmptyWindow() throws Exception {
+        final Digest digest = new Digest("test", null, WAIT, dispatcher);
+        digest.flush();
+        digest.stop();
+
+        dispatcher.stop();
+        assertTrue(sender.getRendered().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentFlush() throws Exception {
+        final int threads = 4;
+        final int count = 200000;
+        final Digest digest = new Digest("test", null, WAIT, dispatcher);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        final List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Thread writer = new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    digest.add(message, j % 8);
+                }
+                done.countDown();
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        // Swap windows while writers count into them
+        while (done.getCount() > 0) {
+            digest.flush();
+        }
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+        digest.stop();
+        dispatcher.stop();
+
+        long total = 0;
+        for (final Notification summary : sender.getRendered()) {
+            final Matcher matcher = TOTAL.matcher(summary.getMessage().getMessage());
+            assertTrue(matcher.find());
+            total += Long.parseLong(matcher.group(1));
+        }
+        assertEquals((long) threads * count, total);
+    }
+}
@@ -0,0 +1,312 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.helpers.StubSender;
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.metrics.SkipReason;
+import com.alchemist.graylog.plugin.sender.Notification;
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class DispatcherTest extends AbstractTest {
+    private static final long SLOW = 300; // millis
+    private static final long TIMEOUT = 5000; // millis
+    private static final int TIMEOUT_MS = (int) TIMEOUT;
+
+    @Mock
+    private Message message;
+
+    private OutputMetrics metrics;
+    private RetryScheduler retry;
+    private final List<Dispatcher> dispatchers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        metrics = new OutputMetrics(new MetricRegistry(), "test");
+        retry = new RetryScheduler("test", 10, 60, 1000, metrics);
+    }
+
+    @After
+    public void tearDown() {
+        for (final Dispatcher dispatcher : dispatchers) {
+            dispatcher.stop();
+        }
+        retry.stop();
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+        final StubSender sender = new StubSender(0);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 10, OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(dispatcher.dispatch(notification(6)));
+        }
+
+        assertTrue(sender.await(3, TIMEOUT));
+        assertEquals(0, dispatcher.getDropped());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        final StubSender sender = new StubSender(SLOW);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 2, OverflowPolicy.DROP_NEWEST);
+        busy(dispatcher);
+
+        final Notification second = notification(6);
+        final Notification third = notification(6);
+        assertNull(dispatcher.dispatch(second));
+        assertNull(dispatcher.dispatch(third));
+        assertEquals(SkipReason.QUEUE, dispatcher.dispatch(notification(6)));
+        assertEquals(1, dispatcher.getDropped());
+
+        assertTrue(sender.await(3, TIMEOUT));
+        assertSame(second, sender.getRendered().get(1));
+        assertSame(third, sender.getRendered().get(2));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        final StubSender sender = new StubSender(SLOW);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 2, OverflowPolicy.DROP_OLDEST);
+        busy(dispatcher);
+
+        final Notification third = notification(6);
+        final Notification fourth = notification(6);
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(third));
+        assertNull(dispatcher.dispatch(fourth));
+        assertEquals(1, dispatcher.getDropped());
+
+        assertTrue(sender.await(3, TIMEOUT));
+        assertSame(third, sender.getRendered().get(1));
+        assertSame(fourth, sender.getRendered().get(2));
+    }
+
+    @Test
+    public void testDropLessSevere() throws Exception {
+        final StubSender sender = new StubSender(SLOW);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 2, OverflowPolicy.DROP_NEWEST);
+        busy(dispatcher);
+
+        final Notification error = notification(3);
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(error));
+        assertEquals(1, dispatcher.getDropped());
+
+        // The most severe message is taken first
+        assertTrue(sender.await(3, TIMEOUT));
+        assertSame(error, sender.getRendered().get(1));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final StubSender sender = new StubSender(SLOW);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 1, OverflowPolicy.BLOCK);
+        busy(dispatcher);
+
+        final long start = System.currentTimeMillis();
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(notification(6)));
+
+        // Second message waited for worker to take the first one
+        assertTrue(System.currentTimeMillis() - start >= SLOW / 2);
+        assertEquals(0, dispatcher.getDropped());
+        assertTrue(sender.await(3, TIMEOUT));
+    }
+
+    @Test
+    public void testShed() throws Exception {
+        final StubSender sender = new StubSender(SLOW);
+        final Dispatcher dispatcher = new Dispatcher("test", targets(Collections.singletonList(sender)), TIMEOUT_MS,
+                0, 1, 4, 50, 0, 4, 1, OverflowPolicy.DROP_NEWEST, retry, metrics);
+        dispatchers.add(dispatcher);
+        busy(dispatcher);
+
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(notification(6)));
+
+        // High watermark of 2 is reached, only messages up to shed level are queued
+        assertEquals(SkipReason.SHED, dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(notification(4)));
+        assertTrue(dispatcher.isShedding());
+        assertEquals(1, dispatcher.getShed());
+        assertEquals(0, dispatcher.getDropped());
+
+        assertTrue(sender.await(4, TIMEOUT));
+    }
+
+    @Test
+    public void testBatchBySize() throws Exception {
+        final StubSender sender = new StubSender(0);
+        final Dispatcher dispatcher = new Dispatcher("test", targets(Collections.singletonList(sender)), TIMEOUT_MS,
+                10000, 3, 10, 100, 80, 4, 1, OverflowPolicy.DROP_NEWEST, retry, metrics);
+        dispatchers.add(dispatcher);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(dispatcher.dispatch(notification(6)));
+        }
+
+        // Full batch is sent long before batch window ends
+        assertTrue(sender.await(1, TIMEOUT));
+        assertEquals(Collections.singletonList(3), sender.getBatches());
+        assertEquals("1,2,3", sender.getDelivered().get(0));
+    }
+
+    @Test
+    public void testBatchByWindow() throws Exception {
+        final StubSender sender = new StubSender(0);
+        final Dispatcher dispatcher = new Dispatcher("test", targets(Collections.singletonList(sender)), TIMEOUT_MS,
+                200, 100, 10, 100, 80, 4, 1, OverflowPolicy.DROP_NEWEST, retry, metrics);
+        dispatchers.add(dispatcher);
+
+        assertNull(dispatcher.dispatch(notification(6)));
+        assertNull(dispatcher.dispatch(notification(6)));
+
+        assertTrue(sender.await(1, TIMEOUT));
+        assertEquals(Collections.singletonList(2), sender.getBatches());
+    }
+
+    @Test
+    public void testFanout() throws Exception {
+        final StubSender slow = new StubSender(SLOW);
+        final StubSender fast = new StubSender(0);
+        final Dispatcher dispatcher = create(Arrays.asList(slow, fast), 0, 1, 10, OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(dispatcher.dispatch(notification(6)));
+        }
+
+        // Fast target does not wait for slow one
+        assertTrue(fast.await(5, SLOW * 2));
+        assertTrue(slow.getDelivered().size() < 5);
+
+        assertTrue(slow.await(5, TIMEOUT));
+        assertEquals(0, dispatcher.getLaneDropped(0));
+        assertEquals(0, dispatcher.getLaneDropped(1));
+    }
+
+    @Test
+    public void testRouted() throws Exception {
+        final StubSender first = new StubSender(0);
+        final StubSender second = new StubSender(0);
+        final Dispatcher dispatcher = create(Arrays.asList(first, second), 0, 1, 10, OverflowPolicy.DROP_NEWEST);
+
+        assertNull(dispatcher.dispatch(new Notification(message, 6, 1L << 1)));
+        assertNull(dispatcher.dispatch(new Notification(message, 6)));
+
+        assertTrue(second.await(2, TIMEOUT));
+        assertTrue(first.await(1, TIMEOUT));
+        dispatcher.stop();
+        assertEquals(1, first.getDelivered().size());
+    }
+
+    @Test
+    public void testTargetTimeout() throws Exception {
+        final StubSender slow = new StubSender(SLOW);
+        final StubSender fast = new StubSender(0);
+        final Dispatcher dispatcher = new Dispatcher("test", targets(Arrays.asList(slow, fast)), (int) SLOW / 3,
+                0, 1, 10, 100, 80, 4, 1, OverflowPolicy.DROP_NEWEST, retry, metrics);
+        dispatchers.add(dispatcher);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(dispatcher.dispatch(notification(6)));
+        }
+        assertTrue(fast.await(3, TIMEOUT));
+        dispatcher.stop();
+
+        // Messages waiting behind slow delivery are dropped for slow target only
+        assertEquals(1, slow.getDelivered().size());
+        assertEquals(2, dispatcher.getLaneDropped(0));
+        assertEquals(0, dispatcher.getLaneDropped(1));
+    }
+
+    @Test
+    public void testStopDrains() {
+        final StubSender sender = new StubSender(50);
+        final Dispatcher dispatcher = create(Collections.singletonList(sender), 0, 1, 10, OverflowPolicy.DROP_NEWEST);
+
+        for (int i = 0; i < 10; i++) {
+            assertNull(dispatcher.dispatch(notification(6)));
+        }
+        dispatcher.stop();
+
+        assertEquals(10, sender.getDelivered().size());
+        assertEquals(0, dispatcher.size());
+        assertEquals(SkipReason.QUEUE, dispatcher.dispatch(notification(6)));
+        assertFalse(dispatcher.isShedding());
+    }
+
+    /**
+     * Create dispatcher without shedding.
+     *
+     * @param senders     List of StubSender
+     * @param batchWindow int millis
+     * @param batchSize   int
+     * @param capacity    int
+     * @param policy      OverflowPolicy
+     * @return Dispatcher
+     */
+    private Dispatcher create(final List<StubSender> senders, final int batchWindow, final int batchSize,
+                              final int capacity, final OverflowPolicy policy) {
+        final Dispatcher dispatcher = new Dispatcher("test", targets(senders), TIMEOUT_MS, batchWindow, batchSize,
+                capacity, 100, 80, 4, 1, policy, retry, metrics);
+        dispatchers.add(dispatcher);
+        return dispatcher;
+    }
+
+    /**
+     * Wrap senders to targets.
+     *
+     * @param senders List of StubSender
+     * @return List of Target
+     */
+    private static List<Target> targets(final List<StubSender> senders) {
+        final List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < senders.size(); i++) {
+            targets.add(new Target("stub-" + i, senders.get(i), null));
+        }
+        return targets;
+    }
+
+    /**
+     * Occupy the only worker with slow delivery.
+     *
+     * @param dispatcher Dispatcher
+     * @throws InterruptedException Exception
+     */
+    private void busy(final Dispatcher dispatcher) throws InterruptedException {
+        assertNull(dispatcher.dispatch(notification(6)));
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (dispatcher.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, dispatcher.size());
+    }
+
+    /**
+     * Create notification for all targets.
+     *
+     * @param level int
+     * @return Notification
+     */
+    private Notification notification(final int level) {
+        return new Notification(message, level);
+    }
+}
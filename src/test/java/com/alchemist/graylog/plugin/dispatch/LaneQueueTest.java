@@ -0,0 +1,80 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.sender.Notification;
+import org.graylog2.plugin.Message;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class LaneQueueTest extends AbstractTest {
+
+    @Mock
+    private Message message;
+
+    @Test
+    public void testPriority() {
+        final LaneQueue queue = new LaneQueue(10, Integer.MAX_VALUE, 0, 7);
+        final Notification info1 = new Notification(message, 6);
+        final Notification info2 = new Notification(message, 6);
+        final Notification alert = new Notification(message, 1);
+
+        queue.offer(info1, false);
+        queue.offer(info2, false);
+        queue.offer(alert, false);
+
+        assertSame(alert, queue.poll());
+        assertSame(info1, queue.poll());
+        assertSame(info2, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testEvict() {
+        final LaneQueue queue = new LaneQueue(2, Integer.MAX_VALUE, 0, 7);
+        final Notification info1 = new Notification(message, 6);
+        final Notification info2 = new Notification(message, 6);
+        final Notification alert = new Notification(message, 1);
+
+        queue.offer(info1, false);
+        queue.offer(info2, false);
+
+        // Full queue drops the newest less severe message for alert
+        assertSame(info2, queue.offer(alert, false));
+        // There is nothing less severe than info
+        final Notification info3 = new Notification(message, 6);
+        assertSame(info3, queue.offer(info3, false));
+        // Oldest policy drops the oldest message of the least severe lane
+        assertSame(info1, queue.offer(info3, true));
+
+        assertEquals(2, queue.size());
+        assertSame(alert, queue.poll());
+        assertSame(info3, queue.poll());
+    }
+
+    @Test
+    public void testWatermarks() {
+        final LaneQueue queue = new LaneQueue(10, 4, 2, 4);
+        final Notification info = new Notification(message, 6);
+        final Notification error = new Notification(message, 3);
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(queue.isShed(info));
+            queue.offer(info, false);
+        }
+        assertTrue(queue.isShed(info));
+        assertFalse(queue.isShed(error));
+
+        // Shedding goes on until low watermark
+        queue.poll();
+        assertTrue(queue.isShed(info));
+        queue.poll();
+        assertFalse(queue.isShed(info));
+        assertFalse(queue.isShedding());
+    }
+}
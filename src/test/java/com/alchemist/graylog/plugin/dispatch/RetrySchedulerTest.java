@@ -0,0 +1,176 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.helpers.StubSender;
+import com.alchemist.graylog.plugin.metrics.OutputMetrics;
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class RetrySchedulerTest extends AbstractTest {
+    private static final long TIMEOUT = 5000; // millis
+
+    private OutputMetrics metrics;
+    private RetryScheduler retry;
+    private final List<String> fallback = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        metrics = new OutputMetrics(new MetricRegistry(), "test");
+    }
+
+    @After
+    public void tearDown() {
+        if (retry != null) {
+            retry.stop();
+        }
+    }
+
+    @Test
+    public void testBackoff() {
+        for (int number = 0; number < 20; number++) {
+            final long delay = Math.min(60000, 1000L << Math.min(number, 16));
+            for (int i = 0; i < 100; i++) {
+                final long backoff = RetryScheduler.backoff(number);
+                assertTrue(backoff >= delay / 2);
+                assertTrue(backoff <= delay);
+            }
+        }
+    }
+
+    @Test
+    public void testDelivery() throws Exception {
+        final StubSender sender = new StubSender(0);
+        retry = new RetryScheduler("test", 10, 60, 1000, metrics);
+
+        assertTrue(retry.schedule(target(sender), payload(1), new SendException("Unavailable", 503, 0)));
+        assertEquals(1, retry.getInFlight());
+
+        assertTrue(sender.await(1, TIMEOUT));
+        assertEquals("p1", sender.getDelivered().get(0));
+        assertEquals(0, retry.getInFlight());
+        assertTrue(fallback.isEmpty());
+    }
+
+    @Test
+    public void testNotRetryable() {
+        final StubSender sender = new StubSender(0);
+        retry = new RetryScheduler("test", 10, 60, 1000, metrics);
+
+        assertFalse(retry.schedule(target(sender), payload(1), new SendException("Bad request", 400, 0)));
+        assertEquals(0, retry.getInFlight());
+        assertTrue(fallback.isEmpty());
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        final StubSender sender = new StubSender(0);
+        retry = new RetryScheduler("test", 1, 60, 1000, metrics);
+
+        assertTrue(retry.schedule(target(sender), payload(1), new SendException("Unavailable", 503, 0)));
+        assertFalse(retry.schedule(target(sender), payload(2), new SendException("Unavailable", 503, 0)));
+
+        assertEquals(1, retry.getInFlight());
+        assertEquals(Collections.singletonList("p2"), fallback);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        final StubSender sender = new StubSender(0).fail(new SendException("Too many requests", 429, 10000));
+        retry = new RetryScheduler("test", 10, 5, 1000, metrics);
+
+        // Retry after beyond deadline is given up at once
+        assertFalse(retry.schedule(target(sender), payload(1), new SendException("Too many requests", 429, 10000)));
+        assertEquals(Collections.singletonList("p1"), fallback);
+
+        // Failed attempt asking to wait beyond deadline is given up
+        assertTrue(retry.schedule(target(sender), payload(2), new SendException("Unavailable", 503, 0)));
+        awaitInFlight(0);
+        assertEquals(2, fallback.size());
+        assertEquals("p2", fallback.get(1));
+        assertTrue(sender.getDelivered().isEmpty());
+    }
+
+    @Test
+    public void testBreakerOpen() throws Exception {
+        final StubSender sender = new StubSender(0).fail(new SendException("Circuit breaker is open", 100));
+        retry = new RetryScheduler("test", 10, 60, 1000, metrics);
+
+        assertTrue(retry.schedule(target(sender), payload(1), new SendException("Unavailable", 503, 0)));
+
+        // Attempt rejected by open breaker is retried, not dropped
+        assertTrue(sender.await(1, TIMEOUT * 2));
+        assertEquals(0, retry.getInFlight());
+        assertTrue(fallback.isEmpty());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final int count = 20;
+        final StubSender sender = new StubSender(50);
+        for (int i = 0; i < count * 10; i++) {
+            sender.fail(new SendException("Unavailable", 503, 0));
+        }
+        retry = new RetryScheduler("test", count, 60, 1, metrics);
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(retry.schedule(target(sender), payload(i), new SendException("Unavailable", 503, 0)));
+        }
+
+        // Stop while attempts are running
+        Thread.sleep(750);
+        retry.stop();
+        Thread.sleep(500);
+
+        // Each payload is given up once, by its own attempt or by stop
+        assertEquals(0, retry.getInFlight());
+        assertEquals(count, fallback.size());
+        assertEquals(count, new HashSet<>(fallback).size());
+    }
+
+    /**
+     * Wait until count of payloads waiting for retry falls to count.
+     *
+     * @param count int
+     * @throws InterruptedException Exception
+     */
+    private void awaitInFlight(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (retry.getInFlight() > count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, retry.getInFlight());
+    }
+
+    /**
+     * Create target keeping payloads given up.
+     *
+     * @param sender StubSender
+     * @return Target
+     */
+    private Target target(final StubSender sender) {
+        return new Target("stub", sender, payload -> fallback.add(new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Create payload.
+     *
+     * @param number int
+     * @return byte[]
+     */
+    private static byte[] payload(final int number) {
+        return ("p" + number).getBytes(StandardCharsets.UTF_8);
+    }
+}
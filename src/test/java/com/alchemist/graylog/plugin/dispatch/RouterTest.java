@@ -0,0 +1,70 @@
+package com.alchemist.graylog.plugin.dispatch;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.Message;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+public final class RouterTest extends AbstractTest {
+    private static final List<String> NAMES = Arrays.asList("main", "telegram", "slack");
+
+    @Mock
+    private Message message;
+
+    @Test
+    public void testLevels() {
+        final Router router = Router.compile(Arrays.asList(
+                route("0-2", "telegram, main", null, null),
+                route("4", "slack", null, null)), NAMES);
+
+        assertEquals(0b011L, router.route(message, 0));
+        assertEquals(0b011L, router.route(message, 2));
+        assertEquals(0L, router.route(message, 3));
+        assertEquals(0b100L, router.route(message, 4));
+        assertEquals(0L, router.route(message, 7));
+    }
+
+    @Test
+    public void testField() {
+        when(message.getField("app")).thenReturn("Billing");
+
+        final Router router = Router.compile(Arrays.asList(
+                route("4", "telegram", "app", "eq:billing"),
+                route("4-5", "slack", null, null)), NAMES);
+
+        assertEquals(0b010L, router.route(message, 4));
+        assertEquals(0b100L, router.route(message, 5));
+
+        when(message.getField("app")).thenReturn("api");
+        assertEquals(0b100L, router.route(message, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTarget() {
+        Router.compile(Arrays.asList(route("0", "mail", null, null)), NAMES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLevels() {
+        Router.compile(Arrays.asList(route("3-8", "main", null, null)), NAMES);
+    }
+
+    private static Map<String, String> route(final String levels, final String targets, final String field, final String match) {
+        final Map<String, String> route = new HashMap<>();
+        route.put(Router.ROUTE_LEVELS, levels);
+        route.put(Router.ROUTE_TARGETS, targets);
+        if (field != null) {
+            route.put(Router.ROUTE_FIELD, field);
+            route.put(Router.ROUTE_MATCH, match);
+        }
+        return route;
+    }
+}
@@ -0,0 +1,65 @@
+package com.alchemist.graylog.plugin.filter;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.Message;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class DuplicateFilterTest extends AbstractTest {
+
+    private static final String MESSAGE = "message";
+    private static final String SOURCE = "source";
+
+    @Mock
+    private Message message;
+
+    @Test
+    public void testHash() {
+        final long seed = 0;
+
+        assertEquals(DuplicateFilter.hash(seed, "Timeout after 100 ms, id 42"), DuplicateFilter.hash(seed, "timeout  after 5 ms, id 7"));
+        assertEquals(DuplicateFilter.hash(seed, " text"), DuplicateFilter.hash(seed, "TEXT"));
+        assertNotEquals(DuplicateFilter.hash(seed, "connection refused"), DuplicateFilter.hash(seed, "connection reset"));
+        assertNotEquals(DuplicateFilter.hashExact(seed, "host-1"), DuplicateFilter.hashExact(seed, "host-2"));
+    }
+
+    @Test
+    public void testIsDuplicate() {
+        final DuplicateFilter filter = new DuplicateFilter(Arrays.asList(MESSAGE, SOURCE), 60, 10);
+
+        when(message.hasField(MESSAGE))
+                .thenReturn(true);
+        when(message.hasField(SOURCE))
+                .thenReturn(true);
+        when(message.getField(MESSAGE))
+                .thenReturn("Error 1");
+        when(message.getField(SOURCE))
+                .thenReturn("host-1");
+        assertFalse(filter.isDuplicate(message));
+
+        // Reserved once, released reservation is not a duplicate
+        assertTrue(filter.reserve(filter.fingerprint(message)));
+        filter.release(filter.fingerprint(message));
+        assertFalse(filter.isDuplicate(message));
+        assertTrue(filter.reserve(filter.fingerprint(message)));
+        assertFalse(filter.reserve(filter.fingerprint(message)));
+
+        when(message.getField(MESSAGE))
+                .thenReturn("Error 2");
+        assertTrue(filter.isDuplicate(message));
+
+        when(message.getField(SOURCE))
+                .thenReturn("host-2");
+        assertFalse(filter.isDuplicate(message));
+        assertTrue(filter.reserve(filter.fingerprint(message)));
+        assertEquals(2, filter.size());
+    }
+}
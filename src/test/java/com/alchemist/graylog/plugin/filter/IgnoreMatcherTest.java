@@ -0,0 +1,92 @@
+package com.alchemist.graylog.plugin.filter;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.Message;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class IgnoreMatcherTest extends AbstractTest {
+
+    private static final String FIELD = "facility";
+
+    @Mock
+    private Message message;
+
+    @Test
+    public void testContains() {
+        final FieldMatcher matcher = new FieldMatcher(Arrays.asList(" com.package.a ", "PartOfText", "he", "she", "hers"));
+
+        assertNull(matcher.match(null));
+        assertNull(matcher.match(""));
+        assertNull(matcher.match("com.package.b"));
+
+        assertEquals("com.package.a", matcher.match("COM.Package.A.Service"));
+        assertEquals("PartOfText", matcher.match("some partoftext here"));
+        assertEquals("she", matcher.match("ushers"));
+        assertEquals("he", matcher.match("hers"));
+    }
+
+    @Test
+    public void testExact() {
+        final FieldMatcher matcher = new FieldMatcher(Arrays.asList("eq:Warning", "eq: info "));
+
+        assertNull(matcher.match("warnings"));
+        assertNull(matcher.match("no info"));
+
+        assertEquals("eq:Warning", matcher.match(" WARNING "));
+        assertEquals("eq:info", matcher.match("Info"));
+    }
+
+    @Test
+    public void testRegex() {
+        final FieldMatcher matcher = new FieldMatcher(Collections.singletonList("re:^health.*ok$"));
+
+        assertNull(matcher.match("status: healthcheck ok"));
+        assertEquals("re:^health.*ok$", matcher.match("HealthCheck OK"));
+    }
+
+    @Test
+    public void testEmptyRule() {
+        final FieldMatcher matcher = new FieldMatcher(Collections.singletonList(" "));
+
+        assertEquals("", matcher.match("anything"));
+    }
+
+    @Test
+    public void testMatch() {
+        assertTrue(new IgnoreMatcher(null).isEmpty());
+        assertTrue(new IgnoreMatcher(new HashMap<>()).isEmpty());
+
+        final Map<String, List<String>> rules = new HashMap<>();
+        rules.put(FIELD, Arrays.asList("debug", "eq:test"));
+        final IgnoreMatcher matcher = new IgnoreMatcher(rules);
+
+        when(message.hasField(FIELD))
+                .thenReturn(false);
+        assertNull(matcher.match(message));
+
+        when(message.hasField(FIELD))
+                .thenReturn(true);
+        when(message.getField(FIELD))
+                .thenReturn("app.Debug.log");
+        final IgnoreMatcher.Match match = matcher.match(message);
+        assertEquals(FIELD, match.getField());
+        assertEquals("debug", match.getRule());
+        assertEquals("app.Debug.log", match.getValue());
+
+        when(message.getField(FIELD))
+                .thenReturn("testing");
+        assertNull(matcher.match(message));
+    }
+}
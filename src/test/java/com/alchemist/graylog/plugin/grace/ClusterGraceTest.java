@@ -0,0 +1,82 @@
+package com.alchemist.graylog.plugin.grace;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class ClusterGraceTest extends AbstractTest {
+
+    @Mock
+    private Stream stream;
+
+    @Mock
+    private Message message;
+
+    @Before
+    public void setUp() {
+        when(stream.getId()).thenReturn("stream");
+        when(message.getField("source")).thenReturn("host-1");
+    }
+
+    @Test
+    public void testSharedWindow() {
+        final MemoryGraceStore store = new MemoryGraceStore();
+        final ClusterGrace node1 = new ClusterGrace(store, stream, Collections.emptyList(), 60, 10);
+        final ClusterGrace node2 = new ClusterGrace(store, stream, Collections.emptyList(), 60, 10);
+
+        assertTrue(node1.isPass(message));
+        assertFalse(node2.isPass(message));
+        assertFalse(node1.isPass(message));
+    }
+
+    @Test
+    public void testKeyFields() {
+        final MemoryGraceStore store = new MemoryGraceStore();
+        final ClusterGrace grace = new ClusterGrace(store, stream, Collections.singletonList("source"), 60, 10);
+
+        assertTrue(grace.isPass(message));
+        assertFalse(grace.isPass(message));
+
+        when(message.getField("source")).thenReturn("host-2");
+        assertTrue(grace.isPass(message));
+        assertEquals(2, grace.size());
+    }
+
+    @Test
+    public void testLocalCache() {
+        final AtomicInteger calls = new AtomicInteger();
+        final MemoryGraceStore memory = new MemoryGraceStore();
+        final IGraceStore store = (key, now, wait) -> {
+            calls.incrementAndGet();
+            return memory.acquire(key, now, wait);
+        };
+        final ClusterGrace grace = new ClusterGrace(store, stream, Collections.emptyList(), 60, 10);
+
+        for (int i = 0; i < 100; i++) {
+            grace.isPass(message);
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testStoreFailure() {
+        final IGraceStore store = (key, now, wait) -> {
+            throw new RuntimeException("Store is down");
+        };
+        final ClusterGrace grace = new ClusterGrace(store, stream, Collections.emptyList(), 60, 10);
+
+        assertTrue(grace.isPass(message));
+        assertFalse(grace.isPass(message));
+    }
+}
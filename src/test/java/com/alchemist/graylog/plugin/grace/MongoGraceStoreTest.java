@@ -0,0 +1,286 @@
+package com.alchemist.graylog.plugin.grace;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.graylog2.database.MongoConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class MongoGraceStoreTest extends AbstractTest {
+    private static final String KEY = "stream";
+    private static final long NOW = 1_000_000L;
+    private static final long WAIT = 60_000L;
+
+    @Mock
+    private MongoConnection connection;
+
+    @Mock
+    private MongoDatabase database;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    private final FakeCollection fake = new FakeCollection();
+
+    @Before
+    public void setUp() {
+        when(connection.getMongoDatabase()).thenReturn(database);
+        when(database.getCollection("output_carrier_grace")).thenReturn(collection);
+        when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenAnswer(invocation -> fake.findOneAndUpdate(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2)));
+        when(collection.find(any(Bson.class)))
+                .thenAnswer(invocation -> fake.find(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void testWindow() {
+        final MongoGraceStore store = new MongoGraceStore(connection);
+
+        assertEquals(0, store.acquire(KEY, NOW, WAIT));
+        assertEquals(NOW + WAIT, store.acquire(KEY, NOW + WAIT / 2, WAIT));
+        assertEquals(0, store.acquire("other", NOW + WAIT / 2, WAIT));
+
+        // Closed window is taken again
+        assertEquals(0, store.acquire(KEY, NOW + WAIT + 1, WAIT));
+        assertEquals(NOW + 2 * WAIT + 1, store.acquire(KEY, NOW + WAIT + 2, WAIT));
+    }
+
+    @Test
+    public void testTwoNodes() throws Exception {
+        final MongoGraceStore node1 = new MongoGraceStore(connection);
+        final MongoGraceStore node2 = new MongoGraceStore(connection);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            final List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final MongoGraceStore node = i % 2 == 0 ? node1 : node2;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return node.acquire(KEY, NOW, WAIT);
+                }));
+            }
+            start.countDown();
+
+            // Only one node takes the window, upsert of the other fails on duplicate key
+            int taken = 0;
+            for (final Future<Long> result : results) {
+                final long end = result.get(10, TimeUnit.SECONDS);
+                if (end == 0) {
+                    taken++;
+                } else {
+                    assertEquals(NOW + WAIT, end);
+                }
+            }
+            assertEquals(1, taken);
+            assertTrue(fake.duplicates > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTtlIndex() {
+        final MongoGraceStore store = new MongoGraceStore(connection);
+        store.acquire(KEY, NOW, WAIT);
+        store.acquire(KEY, NOW, WAIT);
+
+        final ArgumentCaptor<Bson> keys = ArgumentCaptor.forClass(Bson.class);
+        final ArgumentCaptor<IndexOptions> options = ArgumentCaptor.forClass(IndexOptions.class);
+        verify(collection, times(1)).createIndex(keys.capture(), options.capture());
+        assertEquals(BsonDocument.parse("{expire: 1}"), render(keys.getValue()));
+        assertEquals(Long.valueOf(0), options.getValue().getExpireAfter(TimeUnit.SECONDS));
+
+        // Document expires at window end
+        final Document window = fake.find(BsonDocument.parse("{_id: 'stream'}")).first();
+        assertEquals(NOW + WAIT, ((Date) window.get("expire")).getTime());
+    }
+
+    /**
+     * Render filter or update.
+     *
+     * @param bson Bson
+     * @return BsonDocument
+     */
+    private static BsonDocument render(final Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+
+    /**
+     * Class FakeCollection.
+     * <p>
+     * Collection stand-in applying find-and-modify like MongoDB does: document is updated only if it matches filter,
+     * upsert of existing id fails on duplicate key. Each operation is atomic.
+     *
+     * @author Alchemist
+     */
+    private static final class FakeCollection {
+        private final Map<BsonValue, BsonDocument> documents = new HashMap<>();
+        private int duplicates;
+
+        /**
+         * Update matching document or insert new one.
+         *
+         * @param filter  Bson
+         * @param update  Bson
+         * @param options FindOneAndUpdateOptions
+         * @return Document updated document
+         */
+        private synchronized Document findOneAndUpdate(final Bson filter, final Bson update,
+                                                       final FindOneAndUpdateOptions options) {
+            final BsonDocument query = render(filter);
+            BsonDocument document = null;
+            for (final BsonDocument candidate : documents.values()) {
+                if (matches(query, candidate)) {
+                    document = candidate;
+                    break;
+                }
+            }
+
+            if (document == null) {
+                if (!options.isUpsert()) {
+                    return null;
+                }
+                document = new BsonDocument();
+                equalities(query, document);
+                if (documents.containsKey(document.get("_id"))) {
+                    duplicates++;
+                    throw new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                            .append("code", new BsonInt32(11000))
+                            .append("errmsg", new BsonString("E11000 duplicate key error")), new ServerAddress());
+                }
+                documents.put(document.get("_id"), document);
+            }
+
+            for (final Map.Entry<String, BsonValue> operator : render(update).entrySet()) {
+                if ("$set".equals(operator.getKey())) {
+                    document.putAll(operator.getValue().asDocument());
+                }
+            }
+            return decode(document);
+        }
+
+        /**
+         * Find first matching document.
+         *
+         * @param filter Bson
+         * @return FindIterable
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized FindIterable<Document> find(final Bson filter) {
+            final BsonDocument query = render(filter);
+            Document found = null;
+            for (final BsonDocument candidate : documents.values()) {
+                if (matches(query, candidate)) {
+                    found = decode(candidate);
+                    break;
+                }
+            }
+            final Document first = found;
+            return mock(FindIterable.class, invocation -> "first".equals(invocation.getMethod().getName()) ? first : null);
+        }
+
+        /**
+         * Match document by equality, $lt and $and conditions.
+         *
+         * @param query    BsonDocument
+         * @param document BsonDocument
+         * @return boolean
+         */
+        private static boolean matches(final BsonDocument query, final BsonDocument document) {
+            for (final Map.Entry<String, BsonValue> condition : query.entrySet()) {
+                if ("$and".equals(condition.getKey())) {
+                    for (final BsonValue part : condition.getValue().asArray()) {
+                        if (!matches(part.asDocument(), document)) {
+                            return false;
+                        }
+                    }
+                    continue;
+                }
+
+                final BsonValue value = document.get(condition.getKey());
+                final BsonValue expected = condition.getValue();
+                if (expected.isDocument() && expected.asDocument().containsKey("$lt")) {
+                    if (value == null || !value.isNumber()
+                            || value.asNumber().longValue() >= expected.asDocument().get("$lt").asNumber().longValue()) {
+                        return false;
+                    }
+                } else if (!expected.equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Copy equality conditions of query to new document, as upsert does.
+         *
+         * @param query    BsonDocument
+         * @param document BsonDocument
+         */
+        private static void equalities(final BsonDocument query, final BsonDocument document) {
+            for (final Map.Entry<String, BsonValue> condition : query.entrySet()) {
+                if ("$and".equals(condition.getKey())) {
+                    for (final BsonValue part : condition.getValue().asArray()) {
+                        equalities(part.asDocument(), document);
+                    }
+                } else if (!condition.getValue().isDocument()) {
+                    document.put(condition.getKey(), condition.getValue());
+                }
+            }
+        }
+
+        /**
+         * Decode document.
+         *
+         * @param document BsonDocument
+         * @return Document
+         */
+        private static Document decode(final BsonDocument document) {
+            return new DocumentCodec().decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        }
+    }
+}
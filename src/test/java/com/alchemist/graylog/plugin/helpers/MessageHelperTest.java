@@ -46,6 +46,25 @@ public final class MessageHelperTest extends AbstractTest {
         assertEquals(3, MessageHelper.getLevel(message));
     }
 
+    @Test
+    public void testToLevel() {
+        assertEquals(4, MessageHelper.toLevel(4L));
+        assertEquals(2, MessageHelper.toLevel(2.0));
+        assertEquals(5, MessageHelper.toLevel(" 5 "));
+        assertEquals(3, MessageHelper.toLevel("ERROR"));
+        assertEquals(4, MessageHelper.toLevel("warn"));
+        assertEquals(0, MessageHelper.toLevel("Emergency"));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel("garbage"));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel("-1"));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel("42"));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel(-1));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel(42L));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel(Double.NaN));
+        assertEquals(0, MessageHelper.toLevel(0));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel(""));
+        assertEquals(MessageHelper.DEFAULT_LEVEL, MessageHelper.toLevel(true));
+    }
+
     @Test
     public void testGetFacility() {
         final String FACILITY = "facility";
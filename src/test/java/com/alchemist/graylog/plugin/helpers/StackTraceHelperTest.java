@@ -0,0 +1,63 @@
+package com.alchemist.graylog.plugin.helpers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class StackTraceHelperTest extends AbstractTest {
+
+    @Test
+    public void testTopFrames() {
+        final String trace = "java.lang.IllegalStateException: failed\n"
+                + "\tat com.example.A.run(A.java:1)\n"
+                + "\tat com.example.B.run(B.java:2)\n"
+                + "\tat com.example.C.run(C.java:3)\n"
+                + "Caused by: java.io.IOException: closed\n"
+                + "\tat com.example.D.read(D.java:4)\n"
+                + "\t... 3 more\n";
+
+        assertEquals("java.lang.IllegalStateException: failed\n"
+                        + "\tat com.example.A.run(A.java:1)\n"
+                        + "\t... 2 more\n"
+                        + "Caused by: java.io.IOException: closed\n"
+                        + "\tat com.example.D.read(D.java:4)\n"
+                        + "\t... 3 more",
+                StackTraceHelper.appendSummary(new StringBuilder(), trace, 1, 1000).toString());
+    }
+
+    @Test
+    public void testRepeatedCause() {
+        final StringBuilder trace = new StringBuilder("java.lang.RuntimeException: retry\n");
+        for (int i = 0; i < 5; i++) {
+            trace.append("Caused by: java.net.ConnectException: refused\n")
+                    .append("\tat com.example.Client.connect(Client.java:10)\n");
+        }
+
+        assertEquals("java.lang.RuntimeException: retry\n"
+                        + "Caused by: java.net.ConnectException: refused\n"
+                        + "\tat com.example.Client.connect(Client.java:10)\n"
+                        + "\t... cause repeated 4 times",
+                StackTraceHelper.appendSummary(new StringBuilder(), trace, 1, 1000).toString());
+    }
+
+    @Test
+    public void testHugeTrace() {
+        final StringBuilder trace = new StringBuilder("java.lang.StackOverflowError\n");
+        while (trace.length() < 8 * 1024 * 1024) {
+            trace.append("\tat com.example.Node.visit(Node.java:42)\n");
+        }
+
+        final String summary = StackTraceHelper.appendSummary(new StringBuilder(), trace, 1, 100).toString();
+
+        assertTrue(summary.startsWith("java.lang.StackOverflowError\n\tat com.example.Node.visit(Node.java:42)\n"));
+        assertTrue(summary.endsWith("..."));
+        assertTrue(summary.length() <= 101);
+    }
+
+    @Test
+    public void testPlainText() {
+        assertEquals("Connection refused",
+                StackTraceHelper.appendSummary(new StringBuilder(), "Connection refused", 5, 1000).toString());
+    }
+}
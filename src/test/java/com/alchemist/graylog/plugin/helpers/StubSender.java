@@ -0,0 +1,156 @@
+package com.alchemist.graylog.plugin.helpers;
+
+import com.alchemist.graylog.plugin.sender.ISender;
+import com.alchemist.graylog.plugin.sender.Notification;
+import com.alchemist.graylog.plugin.sender.SendException;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class StubSender.
+ * <p>
+ * Sender without endpoint: keeps rendered notifications, packed batch sizes and delivered payloads, delivery may be
+ * slowed down or failed with queued errors.
+ *
+ * @author Alchemist
+ */
+public final class StubSender implements ISender {
+    private final long delay;
+    private final List<Notification> rendered = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<SendException> errors = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     *
+     * @param delay long millis each delivery takes
+     */
+    public StubSender(final long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * Fail next deliveries with errors in order.
+     *
+     * @param error SendException
+     * @return StubSender
+     */
+    public StubSender fail(final SendException error) {
+        errors.add(error);
+        return this;
+    }
+
+    /**
+     * Get rendered notifications.
+     *
+     * @return List of Notification
+     */
+    public List<Notification> getRendered() {
+        return rendered;
+    }
+
+    /**
+     * Get sizes of packed batches.
+     *
+     * @return List of Integer
+     */
+    public List<Integer> getBatches() {
+        return batches;
+    }
+
+    /**
+     * Get delivered payloads.
+     *
+     * @return List of String
+     */
+    public List<String> getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Wait until count of payloads is delivered.
+     *
+     * @param count   int
+     * @param timeout long millis
+     * @return boolean false on timeout
+     * @throws InterruptedException Exception
+     */
+    public boolean await(final int count, final long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (delivered.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void perform(final Notification notification) throws Exception {
+        deliver(render(notification));
+    }
+
+    @Override
+    public byte[] render(final Notification notification) {
+        rendered.add(notification);
+        return String.valueOf(rendered.size()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<byte[]> pack(final List<Notification> batch) {
+        batches.add(batch.size());
+        final List<byte[]> payloads = new ArrayList<>(batch.size());
+        for (final Notification notification : batch) {
+            payloads.add(render(notification));
+        }
+        return Collections.singletonList(String.join(",", toStrings(payloads)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void deliver(final byte[] payload) throws SendException {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SendException("Interrupted", e);
+            }
+        }
+        final SendException error = errors.poll();
+        if (error != null) {
+            throw error;
+        }
+        delivered.add(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Endpoint getEndpoint() {
+        return null;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    /**
+     * Decode payloads.
+     *
+     * @param payloads List of byte[]
+     * @return List of String
+     */
+    private static List<String> toStrings(final List<byte[]> payloads) {
+        final List<String> strings = new ArrayList<>(payloads.size());
+        for (final byte[] payload : payloads) {
+            strings.add(new String(payload, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+}
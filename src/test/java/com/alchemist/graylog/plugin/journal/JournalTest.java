@@ -0,0 +1,110 @@
+package com.alchemist.graylog.plugin.journal;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public final class JournalTest extends AbstractTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+    private static final long MAX_AGE = 3600 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+
+        Journal journal = new Journal(dir, MAX_SIZE, MAX_AGE);
+        assertNull(journal.next());
+        journal.append(bytes("one"));
+        journal.append(bytes("two"));
+
+        // Committed record is not replayed again
+        final Journal.Record record = journal.next();
+        assertEquals("one", string(record.getPayload()));
+        journal.commit(record);
+        assertEquals("two", string(journal.next().getPayload()));
+        journal.close();
+
+        // Not committed record is replayed after restart
+        journal = new Journal(dir, MAX_SIZE, MAX_AGE);
+        journal.append(bytes("three"));
+        assertEquals(Arrays.asList("two", "three"), drain(journal));
+        assertNull(journal.next());
+        journal.close();
+    }
+
+    @Test
+    public void testTornTail() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+
+        Journal journal = new Journal(dir, MAX_SIZE, MAX_AGE);
+        journal.append(bytes("one"));
+        journal.close();
+
+        // Record header without payload
+        try (final DirectoryStream<Path> segments = Files.newDirectoryStream(dir, "*.journal");
+             final FileOutputStream output = new FileOutputStream(segments.iterator().next().toFile(), true)) {
+            output.write(new byte[]{0, 0, 0, 9, 1, 2, 3});
+        }
+
+        journal = new Journal(dir, MAX_SIZE, MAX_AGE);
+        journal.append(bytes("two"));
+        assertEquals(Arrays.asList("one", "two"), drain(journal));
+        journal.close();
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+
+        final Journal journal = new Journal(dir, MAX_SIZE, 50);
+        journal.append(bytes("one"));
+        Thread.sleep(100);
+        journal.append(bytes("two"));
+
+        // Expired record is skipped, not replayed
+        assertEquals(Arrays.asList("two"), drain(journal));
+
+        // Expired active segment is dropped by cleanup
+        journal.append(bytes("three"));
+        Thread.sleep(100);
+        journal.cleanup();
+        assertEquals(0, journal.size());
+        assertNull(journal.next());
+        journal.close();
+    }
+
+    private static List<String> drain(final Journal journal) throws Exception {
+        final List<String> payloads = new ArrayList<>();
+        Journal.Record record;
+        while ((record = journal.next()) != null) {
+            payloads.add(string(record.getPayload()));
+            journal.commit(record);
+        }
+        return payloads;
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(final byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
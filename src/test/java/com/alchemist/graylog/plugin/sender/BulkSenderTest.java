@@ -0,0 +1,139 @@
+package com.alchemist.graylog.plugin.sender;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.PooledTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class BulkSenderTest extends AbstractTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Mock
+    private Stream stream;
+
+    @Mock
+    private Message message;
+
+    private HttpServer server;
+    private PooledTransport transport;
+    private final List<byte[]> bodies = new ArrayList<>();
+    private final List<String> encodings = new ArrayList<>();
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        final Map<String, Object> fields = new HashMap<>();
+        fields.put("message", "Connection refused");
+        fields.put("level", 3);
+        fields.put("source", "db1");
+        when(message.getFields()).thenReturn(fields);
+        when(message.getField("source")).thenReturn("db1");
+
+        // Local collector stand-in
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/bulk", exchange -> {
+            encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            bodies.add(ByteStreams.toByteArray(exchange.getRequestBody()));
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+        });
+        server.start();
+        url = String.format("http://127.0.0.1:%s/bulk", server.getAddress().getPort());
+        transport = new PooledTransport(2, 1000, 1000, 1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testNdjsonGzip() throws Exception {
+        final BulkSender sender = new BulkSender(stream, url, BulkSender.FORMAT_NDJSON, Collections.emptyList(),
+                1024 * 1024, true, new Endpoint(transport));
+
+        final List<byte[]> payloads = sender.pack(batch(3));
+        assertEquals(1, payloads.size());
+        sender.deliver(payloads.get(0));
+
+        assertEquals("gzip", encodings.get(0));
+        final String[] lines = gunzip(bodies.get(0)).split("\n");
+        assertEquals(3, lines.length);
+        final JsonNode record = MAPPER.readTree(lines[0]);
+        assertEquals("Connection refused", record.path("message").asText());
+        assertEquals(3, record.path("level").asInt());
+    }
+
+    @Test
+    public void testJsonArrayFields() throws Exception {
+        final BulkSender sender = new BulkSender(stream, url, BulkSender.FORMAT_JSON, Arrays.asList("source", "app"),
+                1024 * 1024, false, new Endpoint(transport));
+
+        sender.deliver(sender.render(new Notification(message, 3)));
+
+        final JsonNode body = MAPPER.readTree(bodies.get(0));
+        assertEquals(1, body.size());
+        assertEquals("db1", body.get(0).path("source").asText());
+        assertFalse(body.get(0).has("message"));
+        assertFalse(body.get(0).has("app"));
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        final BulkSender sender = new BulkSender(stream, url, BulkSender.FORMAT_JSON, Collections.emptyList(),
+                200, true, new Endpoint(transport));
+
+        final List<byte[]> payloads = sender.pack(batch(10));
+
+        // Record is 57 bytes, three of them fit into 200 bytes array
+        int records = 0;
+        for (final byte[] payload : payloads) {
+            final String body = gunzip(payload);
+            assertTrue(body.length() <= 200);
+            records += MAPPER.readTree(body).size();
+        }
+        assertEquals(10, records);
+        assertEquals(4, payloads.size());
+    }
+
+    private List<Notification> batch(final int size) {
+        final List<Notification> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batch.add(new Notification(message, 3));
+        }
+        return batch;
+    }
+
+    private static String gunzip(final byte[] body) throws Exception {
+        try (final InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+        }
+    }
+}
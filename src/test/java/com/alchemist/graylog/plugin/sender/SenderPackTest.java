@@ -0,0 +1,83 @@
+package com.alchemist.graylog.plugin.sender;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import com.alchemist.graylog.plugin.transport.Endpoint;
+import com.alchemist.graylog.plugin.transport.UrlConnectionTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.streams.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public final class SenderPackTest extends AbstractTest {
+    private static final String WEBHOOK_URL = "http://127.0.0.1:9/hooks/test";
+    private static final String GRAYLOG_URL = "http://graylog.local/";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Mock
+    private Stream stream;
+
+    @Mock
+    private Message message;
+
+    @Before
+    public void setUp() {
+        when(stream.getId()).thenReturn("stream");
+        when(message.getId()).thenReturn("message");
+        when(message.getTimestamp()).thenReturn(Tools.nowUTC());
+    }
+
+    @Test
+    public void testSlackAttachments() throws Exception {
+        when(message.getMessage()).thenReturn("Connection refused");
+        final SlackSender sender = new SlackSender(stream, WEBHOOK_URL, "#alerts", GRAYLOG_URL, 1000, 0,
+                Collections.emptyList(), new Endpoint(new UrlConnectionTransport(1000, 1000)));
+
+        final List<byte[]> payloads = sender.pack(batch(25));
+
+        assertEquals(2, payloads.size());
+        assertEquals(20, MAPPER.readTree(payloads.get(0)).path("attachments").size());
+        assertEquals(5, MAPPER.readTree(payloads.get(1)).path("attachments").size());
+    }
+
+    @Test
+    public void testTelegramTextLimit() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append('x');
+        }
+        when(message.getMessage()).thenReturn(text.toString());
+        final TelegramSender sender = new TelegramSender(stream, WEBHOOK_URL, "-100123", GRAYLOG_URL, 1000, 0,
+                Collections.emptyList(), new Endpoint(new UrlConnectionTransport(1000, 1000)));
+
+        final List<byte[]> payloads = sender.pack(batch(10));
+
+        assertTrue(payloads.size() > 1 && payloads.size() < 10);
+        int messages = 0;
+        for (final byte[] payload : payloads) {
+            final JsonNode json = MAPPER.readTree(payload);
+            assertTrue(json.path("text").asText().length() <= 4096);
+            messages += json.path("text").asText().split("\n\n").length;
+        }
+        assertEquals(10, messages);
+    }
+
+    private List<Notification> batch(final int size) {
+        final List<Notification> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batch.add(new Notification(message, 3));
+        }
+        return batch;
+    }
+}
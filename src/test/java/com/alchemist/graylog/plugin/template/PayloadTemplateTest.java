@@ -0,0 +1,54 @@
+package com.alchemist.graylog.plugin.template;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.Message;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+public final class PayloadTemplateTest extends AbstractTest {
+
+    @Mock
+    private Message message;
+
+    @Test
+    public void testPlaceholder() {
+        when(message.getField("message")).thenReturn("line \"1\"\nline 2");
+        when(message.getField("level")).thenReturn(3);
+
+        final PayloadTemplate template = PayloadTemplate.compile("{\"text\":\"${message}\",\"level\":${level},\"x\":\"$${x}\"}");
+
+        assertEquals("{\"text\":\"line \\\"1\\\"\\nline 2\",\"level\":3,\"x\":\"${x}\"}",
+                template.render(message, 7, null, null, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testLimit() {
+        when(message.getField("message")).thenReturn("0123456789");
+
+        assertEquals("01234...", PayloadTemplate.compile("${message:5}").render(message, 7, null, null, new StringBuilder()).toString());
+        assertEquals("0123456789", PayloadTemplate.compile("${message:10}").render(message, 7, null, null, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testSection() {
+        when(message.getField("app")).thenReturn("api");
+        when(message.getField("env")).thenReturn("");
+
+        final PayloadTemplate template = PayloadTemplate.compile("${#app}app=${app}${/app}${#env};env=${env}${/env}${^env};no env${/env}");
+
+        assertEquals("app=api;no env", template.render(message, 7, null, null, new StringBuilder()).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnclosedSection() {
+        PayloadTemplate.compile("${#app}text");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBuiltIn() {
+        PayloadTemplate.compile("${@unknown}");
+    }
+}
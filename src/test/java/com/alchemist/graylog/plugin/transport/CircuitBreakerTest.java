@@ -0,0 +1,85 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class CircuitBreakerTest extends AbstractTest {
+
+    @Test
+    public void testErrorRate() {
+        final CircuitBreaker breaker = new CircuitBreaker(50, 0, 60, 1);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.allow());
+            breaker.onSuccess();
+        }
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.allow());
+            breaker.onFailure(false);
+        }
+        // Error rate is not checked before 10 requests
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.allow());
+        breaker.onFailure(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allow());
+        assertTrue(breaker.getRemaining() > 0);
+    }
+
+    @Test
+    public void testTimeouts() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 3, 60, 1);
+
+        breaker.onFailure(true);
+        breaker.onFailure(true);
+        breaker.onSuccess();
+        breaker.onFailure(true);
+        breaker.onFailure(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testProbes() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 1, 0, 2);
+        breaker.onFailure(true);
+
+        // Open time is over, two probes are let through
+        assertTrue(breaker.allow());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allow());
+        assertFalse(breaker.allow());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbe() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 1, 0, 1);
+        breaker.onFailure(true);
+
+        assertTrue(breaker.allow());
+        breaker.onFailure(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testDisabled() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 0, 0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            breaker.onFailure(true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
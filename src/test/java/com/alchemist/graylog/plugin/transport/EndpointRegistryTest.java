@@ -0,0 +1,52 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.graylog2.plugin.configuration.Configuration;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public final class EndpointRegistryTest extends AbstractTest {
+
+    private static final String SLACK_A = "https://hooks.slack.com/services/a";
+    private static final String SLACK_B = "https://hooks.slack.com/services/b";
+
+    @Mock
+    private Configuration configuration;
+
+    @Test
+    public void testShared() throws Exception {
+        final EndpointRegistry registry = new EndpointRegistry();
+        final Endpoint a = registry.acquire("SlackSender", SLACK_A, configuration);
+        final Endpoint a2 = registry.acquire("SlackSender", SLACK_A, configuration);
+        final Endpoint b = registry.acquire("SlackSender", SLACK_B, configuration);
+
+        assertSame(a.getLimiter(1, 1), a2.getLimiter(5, 5));
+        assertSame(a.getHealth(), a2.getHealth());
+        assertNotSame(a.getLimiter(1, 1), b.getLimiter(1, 1));
+        assertSame(a.getTransport(), b.getTransport());
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        final EndpointRegistry registry = new EndpointRegistry();
+        final Endpoint a = registry.acquire("SlackSender", SLACK_A, configuration);
+        final Endpoint a2 = registry.acquire("SlackSender", SLACK_A, configuration);
+
+        a.release();
+        a.release();
+        assertEquals(1, registry.size());
+
+        a2.release();
+        assertEquals(0, registry.size());
+
+        final Endpoint a3 = registry.acquire("SlackSender", SLACK_A, configuration);
+        assertNotSame(a.getHealth(), a3.getHealth());
+        assertNotSame(a.getTransport(), a3.getTransport());
+        a3.release();
+    }
+}
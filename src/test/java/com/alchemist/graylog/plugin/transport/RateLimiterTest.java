@@ -0,0 +1,40 @@
+package com.alchemist.graylog.plugin.transport;
+
+import com.alchemist.graylog.plugin.helpers.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class RateLimiterTest extends AbstractTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testAcquire() throws Exception {
+        final RateLimiter limiter = new RateLimiter(1000, 2);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 12; i++) {
+            limiter.acquire();
+        }
+        // Burst is free, rest 10 permits take about 10 millis
+        assertTrue(System.nanoTime() - start >= 9_000_000L);
+    }
+
+    @Test
+    public void testThrottled() throws Exception {
+        final RateLimiter limiter = new RateLimiter(1, 1);
+
+        limiter.onThrottled(50);
+        assertEquals(0.5, limiter.getRate(), DELTA);
+
+        limiter.onSuccess();
+        assertEquals(0.6, limiter.getRate(), DELTA);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(1, limiter.getRate(), DELTA);
+    }
+}